@@ -23,13 +23,17 @@ package org.fujion.common;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Abstract class for managing globally cached data. Subclasses must implement the fetch logic for
- * retrieving the data object into the cache.
+ * retrieving the data object into the cache. Optionally, the cache may be bounded in size, in which
+ * case the least recently used entry is evicted when the bound is exceeded. Subclasses may also
+ * override {@link #isValid} to force stale entries to be re-fetched.
  * 
  * @param <KEY> The class of the indexing key.
  * @param <VALUE> The class of the cached item.
@@ -44,6 +48,8 @@ public abstract class AbstractCache<KEY, VALUE> implements Iterable<VALUE> {
         
         private ReentrantLock lock = new ReentrantLock();
         
+        private volatile long lastAccess = System.nanoTime();
+        
         private CachedObject() {
             lock.lock();
         }
@@ -89,6 +95,16 @@ public abstract class AbstractCache<KEY, VALUE> implements Iterable<VALUE> {
     
     private final Map<KEY, CachedObject<VALUE>> map = new ConcurrentHashMap<>();
     
+    private final AtomicLong hits = new AtomicLong();
+    
+    private final AtomicLong misses = new AtomicLong();
+    
+    private final AtomicLong evictions = new AtomicLong();
+    
+    private final AtomicLong loadTime = new AtomicLong();
+    
+    private volatile int maxSize;
+    
     /**
      * Logic to retrieve the data item from its primary store based on the provided key. The
      * returned item will be stored in the cache for future retrieval. Note that it is acceptable to
@@ -99,6 +115,18 @@ public abstract class AbstractCache<KEY, VALUE> implements Iterable<VALUE> {
      */
     protected abstract VALUE fetch(KEY key);
     
+    /**
+     * Returns true if a cached value is still valid. If not, it will be discarded and re-fetched.
+     * The default implementation always returns true.
+     * 
+     * @param key The key.
+     * @param value The cached value.
+     * @return True if the cached value may be used.
+     */
+    protected boolean isValid(KEY key, VALUE value) {
+        return true;
+    }
+    
     /**
      * Get value for specified key. If not in cache, will call subclass's fetch method and load into
      * cache.
@@ -107,7 +135,31 @@ public abstract class AbstractCache<KEY, VALUE> implements Iterable<VALUE> {
      * @return The associated value.
      */
     public VALUE get(KEY key) {
-        return isCached(key) ? map.get(key).getObject() : internalGet(key);
+        CachedObject<VALUE> cachedObject = map.get(key);
+        
+        if (cachedObject != null) {
+            VALUE value = cachedObject.getObject();
+            
+            if (isValid(key, value)) {
+                cachedObject.lastAccess = System.nanoTime();
+                hits.incrementAndGet();
+                return value;
+            }
+            
+            map.remove(key, cachedObject);
+        }
+        
+        return internalGet(key);
+    }
+    
+    /**
+     * Removes the item associated with the specified key from the cache.
+     * 
+     * @param key The key.
+     * @return True if an item was removed.
+     */
+    public boolean remove(KEY key) {
+        return map.remove(key) != null;
     }
     
     /**
@@ -136,24 +188,113 @@ public abstract class AbstractCache<KEY, VALUE> implements Iterable<VALUE> {
             if (needsFetch) {
                 cachedObject = new CachedObject<VALUE>();
                 map.put(key, cachedObject);
+                evict();
             } else {
                 cachedObject = map.get(key);
             }
         }
         
         if (needsFetch) {
+            misses.incrementAndGet();
+            long start = System.nanoTime();
+            
             try {
                 cachedObject.setObject(fetch(key));
             } catch (Throwable e) {
                 RuntimeException e2 = MiscUtil.toUnchecked(e);
                 cachedObject.setException(e2);
                 throw e2;
+            } finally {
+                loadTime.addAndGet(System.nanoTime() - start);
             }
         }
         
         return cachedObject.getObject();
     }
     
+    /**
+     * Evicts least recently used entries until the cache size is within bounds. Must be called
+     * while synchronized on the map.
+     */
+    private void evict() {
+        int max = maxSize;
+        
+        while (max > 0 && map.size() > max) {
+            Entry<KEY, CachedObject<VALUE>> eldest = null;
+            
+            for (Entry<KEY, CachedObject<VALUE>> entry : map.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = entry;
+                }
+            }
+            
+            if (eldest == null || !map.remove(eldest.getKey(), eldest.getValue())) {
+                break;
+            }
+            
+            evictions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Returns the maximum number of entries the cache may hold.
+     * 
+     * @return The maximum cache size. A value of &lt;= 0 means the cache is unbounded.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Sets the maximum number of entries the cache may hold. If the cache currently exceeds this
+     * size, least recently used entries are evicted.
+     * 
+     * @param maxSize The maximum cache size. A value of &lt;= 0 means the cache is unbounded.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        
+        synchronized (map) {
+            evict();
+        }
+    }
+    
+    /**
+     * Returns the number of requests satisfied from the cache.
+     * 
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Returns the number of requests that required a fetch.
+     * 
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * Returns the number of entries evicted because the cache exceeded its maximum size.
+     * 
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * Returns the total time spent fetching items into the cache.
+     * 
+     * @return The total load time, in nanoseconds.
+     */
+    public long getLoadTime() {
+        return loadTime.get();
+    }
+    
     /**
      * Refresh the cache. Any existing entries in the cache will be re-fetched after it is cleared.
      */
@@ -439,4 +439,38 @@ public class CommonTest {
         System.out.println(object);
     }
 
+    @Test
+    public void testCache() throws Exception {
+        List<String> stale = new ArrayList<>();
+        AbstractCache<String, String> cache = new AbstractCache<String, String>() {
+
+            @Override
+            protected String fetch(String key) {
+                return key.toUpperCase();
+            }
+
+            @Override
+            protected boolean isValid(String key, String value) {
+                return !stale.contains(key);
+            }
+        };
+
+        cache.setMaxSize(2);
+        assertEquals("A", cache.get("a"));
+        Thread.sleep(1);
+        assertEquals("B", cache.get("b"));
+        Thread.sleep(1);
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertFalse(cache.isCached("b"));
+        assertTrue(cache.isCached("a"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        stale.add("a");
+        assertEquals("A", cache.get("a"));
+        assertEquals(4, cache.getMisses());
+        assertTrue(cache.getLoadTime() > 0);
+    }
 }
@@ -49,6 +49,26 @@ public class ConvertUtil {
         return convert(value, targetType, null);
     }
     
+    /**
+     * Converts a value to a predetermined target type. Obtain an instance using
+     * {@link ConvertUtil#getConverter}.
+     */
+    @FunctionalInterface
+    public interface IValueConverter {
+        
+        /**
+         * Converts a value.
+         *
+         * @param value The value to convert.
+         * @param instance The object instance whose property value is to be set (necessary when the
+         *            target type is a component and the value is the component name or id).
+         * @return The converted value.
+         */
+        Object convert(Object value, Object instance);
+    }
+    
+    private static final IValueConverter IDENTITY_CONVERTER = (value, instance) -> value;
+    
     /**
      * Converts an input value to a target type.
      *
@@ -74,15 +94,55 @@ public class ConvertUtil {
         }
         
         if (targetType == Boolean.class || targetType == boolean.class) {
-            String val = value.toString().trim().toLowerCase();
-            Boolean result = "true".equals(val) ? Boolean.TRUE : "false".equals(val) ? Boolean.FALSE : null;
-            Assert.notNull(result, "Not a valid Boolean value: " + value);
-            return (T) result;
+            return (T) convertToBoolean(value);
         }
         
         return (T) ConvertUtils.convert(value, targetType);
     }
     
+    /**
+     * Returns a converter for the specified target type. The converter performs the same
+     * conversion as {@link #convert(Object, Class, Object)}, but with the choice of conversion
+     * strategy made in advance.
+     *
+     * @param targetType The type to which to convert (may be null, meaning no conversion).
+     * @return A converter for the target type.
+     */
+    public static IValueConverter getConverter(Class<?> targetType) {
+        if (targetType == null || targetType == Object.class) {
+            return IDENTITY_CONVERTER;
+        }
+        
+        if (targetType.isEnum()) {
+            return (value, instance) -> targetType.isInstance(value) ? value : convertToEnum(value, targetType);
+        }
+        
+        if (BaseComponent.class.isAssignableFrom(targetType)) {
+            return (value, instance) -> targetType.isInstance(value) ? value
+                    : convertToComponent(value, targetType, instance);
+        }
+        
+        if (targetType == Boolean.class || targetType == boolean.class) {
+            return (value, instance) -> value instanceof Boolean ? value : convertToBoolean(value);
+        }
+        
+        return (value, instance) -> targetType.isInstance(value) ? value : ConvertUtils.convert(value, targetType);
+    }
+    
+    /**
+     * Converts the input value to a Boolean. The input value must resolve to the string "true" or
+     * "false" (case-insensitive).
+     *
+     * @param value The value to convert.
+     * @return The corresponding Boolean value.
+     */
+    private static Boolean convertToBoolean(Object value) {
+        String val = value.toString().trim().toLowerCase();
+        Boolean result = "true".equals(val) ? Boolean.TRUE : "false".equals(val) ? Boolean.FALSE : null;
+        Assert.notNull(result, "Not a valid Boolean value: " + value);
+        return result;
+    }
+    
     /**
      * Converts the input value to an enumeration member. The input value must resolve to a string
      * which is then matched to an enumeration member by using a case-insensitive lookup.
@@ -175,26 +235,14 @@ public class ConvertUtil {
      * @param args Arguments to be passed to method (may be null if no arguments). Argument values
      *            will be coerced to the expected type if possible.
      * @return Return value of the method, if any.
+     * @see MethodInvoker
      */
     public static Object invokeMethod(Object instance, Method method, Object... args) {
         try {
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            args = args == null ? new Object[0] : args;
-
-            if (args.length != parameterTypes.length) {
-                throw new IllegalArgumentException(StrUtil.formatMessage(
-                    "Attempted to invoke method \"%s\" with the incorrect number of arguments (provided %d but expected %d)",
-                    method.getName(), args.length, parameterTypes.length));
-            }
-            
-            for (int i = 0; i < parameterTypes.length; i++) {
-                args[i] = convert(args[i], parameterTypes[i], instance);
-            }
-            
-            return method.invoke(instance, args);
+            return MethodInvoker.forMethod(method).invoke(instance, args);
         } catch (Exception e) {
             throw new ComponentException(e, "Exception invoking method '%s' on component '%s'", method.getName(),
-                    instance.getClass().getName());
+                    instance == null ? method.getDeclaringClass().getName() : instance.getClass().getName());
         }
     }
     
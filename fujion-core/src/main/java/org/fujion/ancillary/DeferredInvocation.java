@@ -34,7 +34,7 @@ public class DeferredInvocation<T> {
 
     private final Object instance;
 
-    private final Method method;
+    private final MethodInvoker invoker;
 
     private final Object[] defaultArgs;
     
@@ -47,7 +47,7 @@ public class DeferredInvocation<T> {
      */
     public DeferredInvocation(Object instance, Method method, Object... defaultArgs) {
         this.instance = instance;
-        this.method = method;
+        this.invoker = MethodInvoker.forMethod(method);
         this.defaultArgs = defaultArgs;
     }
 
@@ -61,8 +61,8 @@ public class DeferredInvocation<T> {
     @SuppressWarnings("unchecked")
     public T invoke(Object... args) {
         try {
-            Object[] arguments = ArrayUtils.addAll(defaultArgs, args);
-            return (T) ConvertUtil.invokeMethod(instance, method, arguments);
+            Object[] arguments = args == null || args.length == 0 ? defaultArgs : ArrayUtils.addAll(defaultArgs, args);
+            return (T) invoker.invoke(instance, arguments);
         } catch (Exception e) {
             throw MiscUtil.toUnchecked(e);
         }
@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.ancillary;
+
+/**
+ * Interface for components whose children can be hidden by collapsing them. Changes to the
+ * collapsed state are reported as property change events for the "collapsed" property.
+ */
+public interface ICollapsible {
+    
+    /**
+     * Returns true if collapsed (i.e., children are hidden).
+     *
+     * @return True if collapsed.
+     */
+    boolean isCollapsed();
+    
+    /**
+     * Sets the collapsed state.
+     *
+     * @param collapsed True to collapse, false to expand.
+     */
+    void setCollapsed(boolean collapsed);
+    
+    /**
+     * Returns true if the component is to be presented as expandable even when it has no children,
+     * as when its children are to be supplied only once it is expanded.
+     *
+     * @return True if presented as expandable.
+     */
+    boolean isExpandable();
+    
+    /**
+     * Set to true to present the component as expandable even when it has no children.
+     *
+     * @param expandable True to present the component as expandable.
+     */
+    void setExpandable(boolean expandable);
+}
@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.ancillary;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fujion.ancillary.ConvertUtil.IValueConverter;
+import org.fujion.common.MiscUtil;
+import org.fujion.common.StrUtil;
+
+/**
+ * Invokes a method through a method handle, coercing arguments to the declared parameter types.
+ * The method handle and a converter for each parameter are resolved once, when the invoker is
+ * created. Invokers are cached by method (see {@link #forMethod}). The cache is associated with
+ * each method's declaring class, so it does not prevent that class from being unloaded.
+ * <p>
+ * Use the fixed-arity forms of {@code invoke} for methods with up to two parameters to avoid
+ * allocating an argument array. Exceptions thrown by the method are rethrown as by
+ * {@link MiscUtil#toUnchecked}.
+ */
+public class MethodInvoker {
+    
+    private static final ClassValue<Map<Method, MethodInvoker>> invokers = new ClassValue<Map<Method, MethodInvoker>>() {
+        
+        @Override
+        protected Map<Method, MethodInvoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    
+    private final Method method;
+    
+    private final IValueConverter[] converters;
+    
+    private final MethodHandle handle;
+    
+    /**
+     * Returns the invoker for the specified method, creating it if necessary.
+     *
+     * @param method The method.
+     * @return The invoker for the method.
+     */
+    public static MethodInvoker forMethod(Method method) {
+        return invokers.get(method.getDeclaringClass()).computeIfAbsent(method, MethodInvoker::new);
+    }
+    
+    /**
+     * Creates an invoker for the specified method.
+     *
+     * @param method The method.
+     */
+    public MethodInvoker(Method method) {
+        this.method = method;
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        converters = new IValueConverter[parameterTypes.length];
+        
+        for (int i = 0; i < parameterTypes.length; i++) {
+            converters[i] = ConvertUtil.getConverter(parameterTypes[i]);
+        }
+        
+        try {
+            method.setAccessible(true);
+            MethodHandle mh = MethodHandles.lookup().unreflect(method);
+            mh = Modifier.isStatic(method.getModifiers()) ? MethodHandles.dropArguments(mh, 0, Object.class) : mh;
+            mh = mh.asType(MethodType.genericMethodType(parameterTypes.length + 1));
+            handle = parameterTypes.length > 2 ? mh.asSpreader(Object[].class, parameterTypes.length) : mh;
+        } catch (IllegalAccessException e) {
+            throw new ComponentException(e, "Cannot access method '%s'", method.getName());
+        }
+    }
+    
+    /**
+     * Returns the method invoked by this invoker.
+     *
+     * @return The method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+    
+    /**
+     * Returns the number of parameters declared by the method.
+     *
+     * @return The parameter count.
+     */
+    public int getParameterCount() {
+        return converters.length;
+    }
+    
+    /**
+     * Invokes a method that takes no arguments.
+     *
+     * @param instance Instance that is the target of the invocation (may be null for static
+     *            methods).
+     * @return Return value of the method, if any.
+     */
+    public Object invoke(Object instance) {
+        checkArgumentCount(0);
+        
+        try {
+            return handle.invokeExact(instance);
+        } catch (Throwable e) {
+            throw MiscUtil.toUnchecked(e);
+        }
+    }
+    
+    /**
+     * Invokes a method that takes one argument, performing type conversion as necessary.
+     *
+     * @param instance Instance that is the target of the invocation (may be null for static
+     *            methods).
+     * @param arg The argument to be passed to the method.
+     * @return Return value of the method, if any.
+     */
+    public Object invoke(Object instance, Object arg) {
+        checkArgumentCount(1);
+        
+        try {
+            return handle.invokeExact(instance, converters[0].convert(arg, instance));
+        } catch (Throwable e) {
+            throw MiscUtil.toUnchecked(e);
+        }
+    }
+    
+    /**
+     * Invokes a method that takes two arguments, performing type conversion as necessary.
+     *
+     * @param instance Instance that is the target of the invocation (may be null for static
+     *            methods).
+     * @param arg1 The first argument to be passed to the method.
+     * @param arg2 The second argument to be passed to the method.
+     * @return Return value of the method, if any.
+     */
+    public Object invoke(Object instance, Object arg1, Object arg2) {
+        checkArgumentCount(2);
+        
+        try {
+            return handle.invokeExact(instance, converters[0].convert(arg1, instance),
+                converters[1].convert(arg2, instance));
+        } catch (Throwable e) {
+            throw MiscUtil.toUnchecked(e);
+        }
+    }
+    
+    /**
+     * Invokes the method with the provided value(s), performing type conversion as necessary. The
+     * argument array is not modified.
+     *
+     * @param instance Instance that is the target of the invocation (may be null for static
+     *            methods).
+     * @param args Arguments to be passed to method (may be null if no arguments).
+     * @return Return value of the method, if any.
+     */
+    public Object invoke(Object instance, Object... args) {
+        int count = args == null ? 0 : args.length;
+        
+        switch (count) {
+            case 0:
+                return invoke(instance);
+            
+            case 1:
+                return invoke(instance, args[0]);
+            
+            case 2:
+                return invoke(instance, args[0], args[1]);
+            
+            default:
+                checkArgumentCount(count);
+                Object[] converted = new Object[count];
+                
+                for (int i = 0; i < count; i++) {
+                    converted[i] = converters[i].convert(args[i], instance);
+                }
+                
+                try {
+                    return handle.invokeExact(instance, converted);
+                } catch (Throwable e) {
+                    throw MiscUtil.toUnchecked(e);
+                }
+        }
+    }
+    
+    /**
+     * Throws an exception if the number of arguments provided does not match the number of
+     * parameters declared by the method.
+     *
+     * @param count The number of arguments provided.
+     * @exception IllegalArgumentException If the argument count is incorrect.
+     */
+    private void checkArgumentCount(int count) {
+        if (count != converters.length) {
+            throw new IllegalArgumentException(StrUtil.formatMessage(
+                "Attempted to invoke method \"%s\" with the incorrect number of arguments (provided %d but expected %d)",
+                method.getName(), count, converters.length));
+        }
+    }
+}
@@ -20,6 +20,7 @@
  */
 package org.fujion.annotation;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collections;
@@ -32,8 +33,8 @@ import java.util.function.IntSupplier;
 import org.apache.commons.beanutils.ConstructorUtils;
 import org.fujion.ancillary.ComponentException;
 import org.fujion.ancillary.ComponentFactory;
-import org.fujion.ancillary.ConvertUtil;
 import org.fujion.ancillary.DeferredInvocation;
+import org.fujion.ancillary.MethodInvoker;
 import org.fujion.annotation.Component.ChildTag;
 import org.fujion.annotation.Component.ContentHandling;
 import org.fujion.annotation.Component.FactoryParameter;
@@ -131,6 +132,14 @@ public class ComponentDefinition {
     
     private final Map<String, Method> parameters = new HashMap<>();
     
+    private final Map<String, MethodInvoker> getterInvokers = new HashMap<>();
+    
+    private final Map<String, MethodInvoker> setterInvokers = new HashMap<>();
+    
+    private final Set<String> deferredSetters = new HashSet<>();
+    
+    private volatile Constructor<? extends ComponentFactory> factoryConstructor;
+    
     /**
      * Creates a component definition derived from annotation information within the specified
      * class.
@@ -164,22 +173,16 @@ public class ComponentDefinition {
      * @return The property value.
      */
     public Object getProperty(BaseComponent instance, String name) {
-        String[] pname = parsePropertyName(name);
-        String key = pname[0];
-        name = pname[1];
-        Method setter = setters.get(key);
-        Method getter = getters.get(key);
+        String key = getPropertyKey(name);
+        name = getPropertyName(name);
+        MethodInvoker getter = getterInvokers.get(key);
         
         if (getter == null) {
-            String message = setter != null ? "Property is write-only" : "Property is not recognized";
+            String message = setters.get(key) != null ? "Property is write-only" : "Property is not recognized";
             throw new ComponentException(message + ": " + name);
         }
         
-        try {
-            return getter.invoke(instance, getter.getParameterCount() == 1 ? new Object[] { name } : null);
-        } catch (Exception e) {
-            throw MiscUtil.toUnchecked(e);
-        }
+        return getter.getParameterCount() == 1 ? getter.invoke(instance, name) : getter.invoke(instance);
     }
     
     /**
@@ -192,14 +195,12 @@ public class ComponentDefinition {
      * @return Null if the operation occurred, or a DeferredExecution object if deferred.
      */
     public DeferredInvocation<?> setProperty(BaseComponent instance, String name, Object value) {
-        String[] pname = parsePropertyName(name);
-        String key = pname[0];
-        name = pname[1];
-        Method setter = setters.get(key);
-        Method getter = getters.get(key);
+        String key = getPropertyKey(name);
+        name = getPropertyName(name);
+        MethodInvoker setter = setterInvokers.get(key);
         
         if (value instanceof IBinding) {
-            ((IBinding) value).init(instance, name, getter, setter);
+            ((IBinding) value).init(instance, name, getters.get(key), setters.get(key));
             return null;
         }
 
@@ -208,34 +209,65 @@ public class ComponentDefinition {
                 return null;
             }
             
-            String message = getter != null ? "Property is read-only" : "Property is not recognized";
+            String message = getters.get(key) != null ? "Property is read-only" : "Property is not recognized";
             throw new ComponentException(message + ": " + name);
         }
         
-        Object[] args = setter.getParameterCount() == 1 ? new Object[] { value } : new Object[] { name, value };
+        boolean named = setter.getParameterCount() == 2;
         
-        if (setter.getAnnotation(PropertySetter.class).defer()) {
-            return new DeferredInvocation<>(instance, setter, args);
+        if (deferredSetters.contains(key)) {
+            return new DeferredInvocation<>(instance, setter.getMethod(),
+                    named ? new Object[] { name, value } : new Object[] { value });
         }
 
-        ConvertUtil.invokeMethod(instance, setter, args);
+        if (named) {
+            setter.invoke(instance, name, value);
+        } else {
+            setter.invoke(instance, value);
+        }
+        
         return null;
     }
     
     /**
-     * Parses property name into 2 element array: [0] = property key, [1] = property name
+     * Returns the type of value accepted by the setter for the named property.
      *
-     * @param name Property name to parse.
-     * @return Parsed name.
+     * @param name Name of property.
+     * @return The value type, or null if the property has no setter.
      */
-    private String[] parsePropertyName(String name) {
-        if (!name.contains(":")) {
-            return new String[] { name, name };
+    public Class<?> getPropertyType(String name) {
+        Method setter = setters.get(getPropertyKey(name));
+        
+        if (setter == null) {
+            return null;
         }
-
-        String[] pname = name.split("\\:", 2);
-        pname[0] += ":";
-        return pname;
+        
+        Class<?>[] types = setter.getParameterTypes();
+        return types[types.length - 1];
+    }
+    
+    /**
+     * Returns the key under which a property's accessors are registered. For a prefixed property
+     * name (e.g., "attr:color"), this is the prefix including the colon; otherwise, it is the name
+     * itself.
+     *
+     * @param name The property name.
+     * @return The property key.
+     */
+    private String getPropertyKey(String name) {
+        int i = name.indexOf(':');
+        return i < 0 ? name : name.substring(0, i + 1);
+    }
+    
+    /**
+     * Returns a property name without any prefix (e.g., "color" for "attr:color").
+     *
+     * @param name The property name.
+     * @return The property name without its prefix.
+     */
+    private String getPropertyName(String name) {
+        int i = name.indexOf(':');
+        return i < 0 ? name : name.substring(i + 1);
     }
     
     /**
@@ -266,13 +298,27 @@ public class ComponentDefinition {
     }
     
     /**
-     * Returns a factory instance for this component.
+     * Returns a factory instance for this component. The factory constructor is resolved on first
+     * use.
      *
      * @return The component factory.
      */
     public ComponentFactory getFactory() {
         try {
-            return ConstructorUtils.invokeConstructor(factoryClass, this);
+            Constructor<? extends ComponentFactory> ctor = factoryConstructor;
+            
+            if (ctor == null) {
+                ctor = ConstructorUtils.getAccessibleConstructor(factoryClass,
+                    new Class<?>[] { ComponentDefinition.class });
+                
+                if (ctor == null) {
+                    throw new NoSuchMethodException("No suitable constructor for " + factoryClass.getName());
+                }
+                
+                factoryConstructor = ctor;
+            }
+            
+            return ctor.newInstance(this);
         } catch (Exception e) {
             throw MiscUtil.toUnchecked(e);
         }
@@ -439,6 +485,10 @@ public class ComponentDefinition {
                 }
 
                 this.getters.put(name, getter.hide() ? null : method);
+                
+                if (!getter.hide()) {
+                    getterInvokers.put(name, MethodInvoker.forMethod(method));
+                }
             }
         }
     }
@@ -472,6 +522,14 @@ public class ComponentDefinition {
                 }
                 
                 setters.put(name, setter.hide() ? null : method);
+                
+                if (!setter.hide()) {
+                    setterInvokers.put(name, MethodInvoker.forMethod(method));
+                    
+                    if (setter.defer()) {
+                        deferredSetters.add(name);
+                    }
+                }
             }
         }
     }
@@ -20,8 +20,12 @@
  */
 package org.fujion.annotation;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,9 +45,12 @@ import org.springframework.util.ReflectionUtils;
  */
 public class EventHandlerScanner {
 
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Event.class);
+
     /**
      * Event listener implementation that invokes an {@literal @EventHandler}-annotated method on a
-     * target object.
+     * target object. The method is bound to its target once (unless it is static), as a method handle
+     * that accepts an event regardless of whether the method declares an event parameter.
      */
     private static class EventListener implements IEventListener {
 
@@ -51,9 +58,21 @@ public class EventHandlerScanner {
 
         private final Method method;
 
+        private final MethodHandle invoker;
+
         EventListener(Object target, Method method) {
             this.target = target;
             this.method = method;
+
+            try {
+                method.setAccessible(true);
+                MethodHandle handle = MethodHandles.lookup().unreflect(method);
+                handle = Modifier.isStatic(method.getModifiers()) ? handle : handle.bindTo(target);
+                handle = method.getParameterCount() == 0 ? MethodHandles.dropArguments(handle, 0, Event.class) : handle;
+                this.invoker = handle.asType(INVOKER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw MiscUtil.toUnchecked(e);
+            }
         }
 
         /**
@@ -62,11 +81,7 @@ public class EventHandlerScanner {
         @Override
         public void onEvent(Event event) {
             try {
-                if (method.getParameterTypes().length == 0) {
-                    method.invoke(target);
-                } else {
-                    method.invoke(target, event);
-                }
+                invoker.invokeExact(event);
             } catch (Throwable e) {
                 throw MiscUtil.toUnchecked(e);
             }
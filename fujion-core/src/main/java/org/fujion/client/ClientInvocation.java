@@ -20,6 +20,7 @@
  */
 package org.fujion.client;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -30,6 +31,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.fujion.ancillary.IElementIdentifier;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 /**
  * Represents a function invocation request to be sent to the client.
  */
@@ -105,6 +108,33 @@ public class ClientInvocation {
         this(moduleName == null ? null : () -> "@" + moduleName, function, arguments);
     }
     
+    /**
+     * Returns the name of the function to be invoked.
+     *
+     * @return The function name.
+     */
+    public String getFunction() {
+        return function;
+    }
+    
+    /**
+     * Returns the identifier of the widget that implements the function being invoked.
+     *
+     * @return The target identifier (may be null).
+     */
+    public IElementIdentifier getTarget() {
+        return target;
+    }
+    
+    /**
+     * Returns the arguments to be passed to the function.
+     *
+     * @return The function arguments.
+     */
+    public Object[] getArguments() {
+        return arguments;
+    }
+    
     /**
      * Returns the key associated with the client invocation request. This key is used when queuing
      * the request. If a client invocation request with a matching key already exists in the queue,
@@ -129,6 +159,85 @@ public class ClientInvocation {
         return data;
     }
     
+    /**
+     * Writes the client invocation request directly to a JSON generator. The output is equivalent
+     * to serializing the map returned by {@link #toMap()}, but no intermediate maps are created and
+     * the original arguments are left unchanged.
+     *
+     * @param generator The JSON generator.
+     * @throws IOException IO exception.
+     */
+    public void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("fcn", function);
+        generator.writeStringField("tgt", target == null ? null : target.getId());
+        generator.writeFieldName("arg");
+        writeArray(generator, arguments);
+        generator.writeEndObject();
+    }
+    
+    /**
+     * Writes an array of objects as a JSON array.
+     *
+     * @param generator The JSON generator.
+     * @param source Array of objects.
+     * @throws IOException IO exception.
+     */
+    private void writeArray(JsonGenerator generator, Object[] source) throws IOException {
+        generator.writeStartArray();
+        
+        for (Object element : source) {
+            writeValue(generator, element);
+        }
+        
+        generator.writeEndArray();
+    }
+    
+    /**
+     * Writes a single value, applying the same transformations as {@link #transform(Object)}.
+     *
+     * @param generator The JSON generator.
+     * @param source The source object.
+     * @throws IOException IO exception.
+     */
+    private void writeValue(JsonGenerator generator, Object source) throws IOException {
+        if (source instanceof IElementIdentifier) {
+            String id = ((IElementIdentifier) source).getId();
+            
+            if (id == null) {
+                log.error("Component is not attached to a page: " + source);
+                generator.writeNull();
+            } else {
+                generator.writeStartObject();
+                generator.writeStringField("__fujion__", id);
+                generator.writeEndObject();
+            }
+        } else if (source instanceof Map) {
+            generator.writeStartObject();
+            
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) source).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            
+            generator.writeEndObject();
+        } else if (source instanceof Collection) {
+            generator.writeStartArray();
+            
+            for (Object element : (Collection<?>) source) {
+                writeValue(generator, element);
+            }
+            
+            generator.writeEndArray();
+        } else if (source instanceof Object[]) {
+            writeArray(generator, (Object[]) source);
+        } else if (source instanceof Date) {
+            generator.writeNumber(((Date) source).getTime());
+        } else {
+            generator.writeObject(source);
+        }
+    }
+    
     /**
      * Transforms an array of objects.
      *
@@ -144,8 +253,10 @@ public class ClientInvocation {
     }
     
     /**
-     * Transforms a component or subcomponent by replacing it with its selector. This only effects
-     * IElementIdentifier implementations. All other source objects are returned unchanged.
+     * Transforms a component or subcomponent by replacing it with its selector. Maps, collections
+     * and arrays are transformed recursively and dates are replaced by their time values. Arrays are
+     * copied before being transformed, so that the caller's arrays are left unchanged. All other
+     * source objects are returned unchanged.
      *
      * @param source The source object.
      * @return The original or transformed object.
@@ -172,6 +283,10 @@ public class ClientInvocation {
             return transform(col.toArray(ary));
         }
         
+        if (source instanceof Object[]) {
+            return transform(((Object[]) source).clone());
+        }
+        
         if (source instanceof Date) {
             return ((Date) source).getTime();
         }
@@ -21,24 +21,104 @@
 package org.fujion.client;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.fujion.ancillary.IElementIdentifier;
+
 /**
  * Implementation of a queue for client invocation requests. This queue has the special property
  * that if a client invocation with a matching key already exists, that entry will be replaced by
  * the client invocation being queued while maintaining its original position in the queue. This
  * minimizes the traffic between the server and the client for cases where processing the preceding
  * client invocations would be unnecessary.
+ * <p>
+ * In addition, the queue compacts the requests it holds in two ways:
+ * <ul>
+ * <li>Successive state updates for the same widget (with no other intervening invocations of any
+ * kind) are merged into a single multi-state update. Merging is restricted to the last entry in
+ * the queue so that a state update is never delivered ahead of an invocation queued before it
+ * (such as the creation of a widget that the state references).</li>
+ * <li>Invocations targeting a widget that is subsequently discarded (i.e., destroyed) are dropped
+ * when the queue is flushed.</li>
+ * </ul>
  */
 public class ClientInvocationQueue {
     
-    private final Map<String, ClientInvocation> queue = new LinkedHashMap<>();
+    private static final String UPDATE_STATE = "updateState";
+    
+    private static final String UPDATE_STATES = "updateStates";
+    
+    /**
+     * A queued client invocation, with its sequence number within the queue.
+     */
+    private static class QueueEntry {
+        
+        private ClientInvocation invocation;
+        
+        private long sequence;
+        
+        private Map<String, Object> states;
+        
+        QueueEntry(ClientInvocation invocation, long sequence) {
+            this.invocation = invocation;
+            this.sequence = sequence;
+        }
+        
+        /**
+         * Merges a state update into this entry, converting it to a multi-state update if
+         * necessary. A state that is updated more than once moves to the end of the update order.
+         *
+         * @param update The state update to merge.
+         * @param sequence The sequence number of the state update.
+         */
+        void mergeState(ClientInvocation update, long sequence) {
+            if (states == null) {
+                Object[] args = invocation.getArguments();
+                states = new LinkedHashMap<>();
+                states.put((String) args[0], args[1]);
+                invocation = new ClientInvocation(invocation.getTarget(), UPDATE_STATES, states, true);
+            }
+            
+            Object[] args = update.getArguments();
+            states.remove(args[0]);
+            states.put((String) args[0], args[1]);
+            this.sequence = sequence;
+        }
+    }
+    
+    private final Map<String, QueueEntry> queue = new LinkedHashMap<>();
+    
+    /**
+     * The state update into which a subsequent state update for the same target may be merged. This
+     * is non-null only while it is the last entry in the queue.
+     */
+    private QueueEntry mergeable;
+    
+    /**
+     * Discarded targets, with the sequence number in effect when each was discarded.
+     */
+    private final Map<IElementIdentifier, Long> discarded = new IdentityHashMap<>();
+    
+    private long sequence;
     
     public ClientInvocationQueue() {
     }
     
+    /**
+     * Returns true if the invocation is a state update originating from the server.
+     *
+     * @param invocation A client invocation request.
+     * @return True if a state update.
+     */
+    private boolean isStateUpdate(ClientInvocation invocation) {
+        Object[] args = invocation.getArguments();
+        return UPDATE_STATE.equals(invocation.getFunction()) && args.length == 3 && args[0] instanceof String
+                && Boolean.TRUE.equals(args[2]);
+    }
+    
     /**
      * Queue a client invocation request.
      * 
@@ -46,7 +126,7 @@ public class ClientInvocationQueue {
      */
     public void queue(ClientInvocation invocation) {
         synchronized (queue) {
-            queue.put(invocation.getKey(), invocation);
+            _queue(invocation);
         }
     }
     
@@ -58,7 +138,45 @@ public class ClientInvocationQueue {
     public void queue(Iterable<ClientInvocation> invocations) {
         synchronized (queue) {
             for (ClientInvocation invocation : invocations) {
-                queue.put(invocation.getKey(), invocation);
+                _queue(invocation);
+            }
+        }
+    }
+    
+    private void _queue(ClientInvocation invocation) {
+        IElementIdentifier target = invocation.getTarget();
+        long seq = sequence++;
+        boolean isStateUpdate = target != null && isStateUpdate(invocation);
+        
+        if (isStateUpdate && mergeable != null && mergeable.invocation.getTarget() == target) {
+            mergeable.mergeState(invocation, seq);
+            return;
+        }
+        
+        QueueEntry entry = new QueueEntry(invocation, seq);
+        QueueEntry previous = queue.put(invocation.getKey(), entry);
+        
+        if (previous == null) {
+            mergeable = isStateUpdate ? entry : null;
+        } else if (previous == mergeable) {
+            mergeable = null;
+        }
+    }
+    
+    /**
+     * Discards any queued requests targeting the specified widget. Requests queued after this call
+     * are unaffected.
+     *
+     * @param target The target widget (typically one that is being destroyed).
+     */
+    public void discard(IElementIdentifier target) {
+        synchronized (queue) {
+            if (!queue.isEmpty()) {
+                if (mergeable != null && mergeable.invocation.getTarget() == target) {
+                    mergeable = null;
+                }
+                
+                discarded.put(target, sequence);
             }
         }
     }
@@ -72,8 +190,18 @@ public class ClientInvocationQueue {
         List<ClientInvocation> invocations;
         
         synchronized (queue) {
-            invocations = new ArrayList<>(queue.values());
-            queue.clear();
+            invocations = new ArrayList<>(queue.size());
+            
+            for (QueueEntry entry : queue.values()) {
+                IElementIdentifier target = entry.invocation.getTarget();
+                Long discardedAt = target == null || discarded.isEmpty() ? null : discarded.get(target);
+                
+                if (discardedAt == null || entry.sequence >= discardedAt) {
+                    invocations.add(entry.invocation);
+                }
+            }
+            
+            _clear();
         }
         
         return invocations;
@@ -84,7 +212,13 @@ public class ClientInvocationQueue {
      */
     public void clear() {
         synchronized (queue) {
-            queue.clear();
+            _clear();
         }
     }
+    
+    private void _clear() {
+        queue.clear();
+        mergeable = null;
+        discarded.clear();
+    }
 }
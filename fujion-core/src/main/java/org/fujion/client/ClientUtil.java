@@ -22,6 +22,7 @@ package org.fujion.client;
 
 import org.fujion.component.BaseComponent;
 import org.fujion.component.BaseUIComponent;
+import org.fujion.websocket.Session;
 import org.fujion.websocket.WebSocketHandler;
 
 /**
@@ -30,14 +31,21 @@ import org.fujion.websocket.WebSocketHandler;
 public class ClientUtil {
 
     /**
-     * Invoke a function on the client.
+     * Invoke a function on the client. The invocation is sent via the synchronizer of the current
+     * session, so it is delivered in order with any other pending client invocations.
      *
      * @param function Name of the function to invoke.
      * @param args Arguments to pass to the function.
      */
     public static void invoke(String function, Object... args) {
         ClientInvocation invocation = new ClientInvocation((String) null, function, args);
-        WebSocketHandler.send(invocation);
+        Session session = ExecutionContext.getSession();
+
+        if (session == null) {
+            WebSocketHandler.send(invocation);
+        } else {
+            session.getSynchronizer().sendToClient(invocation);
+        }
     }
 
     /**
@@ -37,7 +37,7 @@ public class Synchronizer {
 
     private final WebSocketSession session;
 
-    private boolean queueing;
+    private int queueing;
 
     /**
      * Create a synchronizer for the specific web socket session.
@@ -51,17 +51,46 @@ public class Synchronizer {
 
     /**
      * Activate queueing. All client invocations will be queued until queueing is deactivated.
+     * Calls may be nested, in which case queueing remains active until the outermost call to
+     * {@link #stopQueueing()}. Note that queueing is automatically activated for the duration of
+     * each client request.
      */
-    public void startQueueing() {
-        queueing = true;
+    public synchronized void startQueueing() {
+        queueing++;
     }
 
     /**
-     * Deactivate queueing. Any queued invocations will be immediately sent to the client.
+     * Deactivate queueing. If this ends the outermost activation, any queued invocations will be
+     * immediately sent to the client.
      */
     public void stopQueueing() {
-        queueing = false;
-        sendToClient(queue.flush());
+        synchronized (this) {
+            if (queueing == 0 || --queueing > 0) {
+                return;
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Returns true if queueing is active.
+     *
+     * @return True if queueing is active.
+     */
+    public synchronized boolean isQueueing() {
+        return queueing > 0;
+    }
+
+    /**
+     * Immediately sends any queued invocations to the client without deactivating queueing. Use
+     * this when invocations must reach the client before the current execution cycle completes.
+     *
+     * @return This synchronizer instance (for chaining).
+     */
+    public Synchronizer flush() {
+        WebSocketHandler.send(session, queue.flush());
+        return this;
     }
 
     /**
@@ -71,6 +100,16 @@ public class Synchronizer {
         queue.clear();
     }
 
+    /**
+     * Discards any queued client invocations targeting the specified widget. This is called when a
+     * component is destroyed, since such invocations would serve no purpose.
+     *
+     * @param target The target widget.
+     */
+    public void discard(IElementIdentifier target) {
+        queue.discard(target);
+    }
+
     /**
      * Creates and sends a client invocation to create a widget.
      *
@@ -113,12 +152,14 @@ public class Synchronizer {
      * @return This synchronizer instance (for chaining).
      */
     public Synchronizer sendToClient(ClientInvocation invocation) {
-        if (queueing) {
-            queue.queue(invocation);
-        } else {
-            WebSocketHandler.send(session, invocation);
+        synchronized (this) {
+            if (queueing > 0) {
+                queue.queue(invocation);
+                return this;
+            }
         }
 
+        WebSocketHandler.send(session, invocation);
         return this;
     }
 
@@ -129,12 +170,14 @@ public class Synchronizer {
      * @return This synchronizer instance (for chaining).
      */
     public Synchronizer sendToClient(Collection<ClientInvocation> invocations) {
-        if (queueing) {
-            queue.queue(invocations);
-        } else {
-            WebSocketHandler.send(session, invocations);
+        synchronized (this) {
+            if (queueing > 0) {
+                queue.queue(invocations);
+                return this;
+            }
         }
 
+        WebSocketHandler.send(session, invocations);
         return this;
     }
 }
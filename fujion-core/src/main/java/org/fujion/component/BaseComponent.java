@@ -25,7 +25,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -221,7 +220,11 @@ public abstract class BaseComponent implements IElementIdentifier {
 
     private List<Object> controllers;
 
-    private final List<BaseComponent> children = new LinkedList<>();
+    private final List<BaseComponent> children = new ArrayList<>();
+
+    private int indexValidTo;
+
+    private int indexInParent = -1;
 
     private final Map<String, Object> attributes = new HashMap<>();
 
@@ -337,6 +340,7 @@ public abstract class BaseComponent implements IElementIdentifier {
 
         if (page != null) {
             page.registerComponent(this, false);
+            page.getSynchronizer().discard(this);
         }
 
         destroyChildren();
@@ -371,7 +375,7 @@ public abstract class BaseComponent implements IElementIdentifier {
      */
     public void destroyChildren() {
         while (!children.isEmpty()) {
-            children.get(0).destroy();
+            children.get(children.size() - 1).destroy();
         }
     }
 
@@ -616,9 +620,12 @@ public abstract class BaseComponent implements IElementIdentifier {
             oldParent._removeChild(child, true, false);
         }
 
-        if (index < 0) {
+        if (index < 0 || index == children.size()) {
+            child.indexInParent = indexValidTo == children.size() ? indexValidTo++ : -1;
             children.add(child);
         } else {
+            child.indexInParent = -1;
+            invalidateIndexes(index);
             children.add(index, child);
         }
 
@@ -656,8 +663,7 @@ public abstract class BaseComponent implements IElementIdentifier {
             throw new ComponentException(this, "Before component does not belong to this parent.");
         }
 
-        int i = children.indexOf(before);
-        addChild(child, i);
+        addChild(child, before.getIndex());
     }
 
     /**
@@ -672,12 +678,17 @@ public abstract class BaseComponent implements IElementIdentifier {
     }
 
     /**
-     * Removes a child from this parent.
+     * Removes a child from this parent. The child and its descendants are unregistered from the
+     * page until they are attached again, so that the page does not retain detached components.
      *
      * @param child Child to remove.
      */
     public void removeChild(BaseComponent child) {
         _removeChild(child, false, false);
+
+        if (child.page != null) {
+            child._register(false);
+        }
     }
 
     /**
@@ -688,16 +699,17 @@ public abstract class BaseComponent implements IElementIdentifier {
      * @param destroy If true, destroy the child once it is removed.
      */
     /*package*/ void _removeChild(BaseComponent child, boolean noSync, boolean destroy) {
-        int index = children.indexOf(child);
-
-        if (index == -1) {
+        if (child.getParent() != this) {
             throw new ComponentException(this, "Child does not belong to this parent");
         }
 
         beforeRemoveChild(child);
+        int index = child.getIndex();
         nameIndex.remove(child);
         child.parent = null;
-        children.remove(child);
+        child.indexInParent = -1;
+        children.remove(index);
+        invalidateIndexes(index);
 
         if (!noSync) {
             invokeIfAttached("removeChild", child, destroy);
@@ -718,9 +730,40 @@ public abstract class BaseComponent implements IElementIdentifier {
         BaseComponent child2 = children.get(index2);
         children.set(index1, child2);
         children.set(index2, child1);
+        child1.indexInParent = index2;
+        child2.indexInParent = index1;
         invokeIfAttached("swapChildren", index1, index2);
     }
 
+    /**
+     * Rearranges a contiguous range of children in a single operation. The client is sent a single
+     * instruction to move the corresponding widgets; no children are destroyed or re-rendered.
+     *
+     * @param startIndex Index of the first child in the range.
+     * @param order For each position in the range, the current index of the child that is to
+     *            occupy it. This must be a permutation of the indexes within the range.
+     * @exception IllegalArgumentException If the order is not a permutation of the range.
+     */
+    public void reorderChildren(int startIndex, int[] order) {
+        int count = order.length;
+        boolean[] seen = new boolean[count];
+        BaseComponent[] moved = new BaseComponent[count];
+        
+        for (int i = 0; i < count; i++) {
+            int offset = order[i] - startIndex;
+            Assert.isTrue(offset >= 0 && offset < count && !seen[offset], "Invalid child order");
+            seen[offset] = true;
+            moved[i] = children.get(order[i]);
+        }
+        
+        for (int i = 0; i < count; i++) {
+            children.set(startIndex + i, moved[i]);
+            moved[i].indexInParent = startIndex + i;
+        }
+        
+        invokeIfAttached("reorderChildren", startIndex, order);
+    }
+
     /**
      * Called before a new parent is set.
      *
@@ -940,7 +983,41 @@ public abstract class BaseComponent implements IElementIdentifier {
      * @return Index of this child within its parent. If the component has not parent, returns -1.
      */
     public int getIndex() {
-        return getParent() == null ? -1 : getParent().children.indexOf(this);
+        return getParent() == null ? -1 : getParent().indexOfChild(this);
+    }
+
+    /**
+     * Returns the index of a child. Each child caches its own index. Mutation of the child list
+     * invalidates only the cached indexes at or after the point of mutation, and these are
+     * recomputed on demand in a single pass.
+     *
+     * @param child The child, which must belong to this parent.
+     * @return The index of the child.
+     */
+    private int indexOfChild(BaseComponent child) {
+        int i = child.indexInParent;
+
+        if (i >= 0 && i < indexValidTo) {
+            return i;
+        }
+
+        int size = children.size();
+
+        for (i = indexValidTo; i < size; i++) {
+            children.get(i).indexInParent = i;
+        }
+
+        indexValidTo = size;
+        return child.indexInParent;
+    }
+
+    /**
+     * Invalidates the cached indexes of all children at or after the specified position.
+     *
+     * @param index The position of the first child whose index may have changed.
+     */
+    private void invalidateIndexes(int index) {
+        indexValidTo = Math.min(indexValidTo, index);
     }
 
     /**
@@ -1051,6 +1128,19 @@ public abstract class BaseComponent implements IElementIdentifier {
         }
     }
 
+    /**
+     * Registers or unregisters this component and its descendants with the owning page.
+     *
+     * @param register If true, register the components. If false, unregister them.
+     */
+    private void _register(boolean register) {
+        page.registerComponent(this, register);
+
+        for (BaseComponent child : getChildren()) {
+            child._register(register);
+        }
+    }
+
     /**
      * Called when this component is first attached to a page.
      *
@@ -1072,7 +1162,8 @@ public abstract class BaseComponent implements IElementIdentifier {
     }
 
     /**
-     * Attach this component and its children to their owning page.
+     * Attach this component and its children to their owning page. A component that was detached
+     * from the page is registered with it again.
      *
      * @param page Page to receive this component.
      */
@@ -1080,6 +1171,8 @@ public abstract class BaseComponent implements IElementIdentifier {
         if (page != null && this.page != page) {
             _setPage(page);
             _flushQueue();
+        } else if (page != null && page.findById(id) != this) {
+            _register(true);
         }
     }
 
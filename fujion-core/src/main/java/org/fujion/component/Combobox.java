@@ -24,6 +24,8 @@ import org.fujion.annotation.Component;
 import org.fujion.annotation.Component.ChildTag;
 import org.fujion.annotation.Component.PropertyGetter;
 import org.fujion.annotation.Component.PropertySetter;
+import org.fujion.annotation.EventHandler;
+import org.fujion.event.ViewportEvent;
 import org.fujion.model.IModelAndView;
 import org.fujion.model.ISupportsModel;
 import org.fujion.model.ModelAndView;
@@ -143,6 +145,42 @@ public class Combobox extends BaseInputboxComponent<String> implements ISupports
         return value;
     }
 
+    /**
+     * Returns true if virtual scrolling is enabled. When enabled, only those combo items within or
+     * near the visible region are rendered. This requires that a model and renderer be used to
+     * generate combo items.
+     *
+     * @return True if virtual scrolling is enabled.
+     */
+    @PropertyGetter("virtual")
+    public boolean isVirtual() {
+        return modelAndView.isVirtual();
+    }
+
+    /**
+     * Enables or disables virtual scrolling. When enabled, only those combo items within or near the
+     * visible region are rendered. This requires that a model and renderer be used to generate
+     * combo items.
+     *
+     * @param virtual True to enable virtual scrolling.
+     */
+    @PropertySetter("virtual")
+    public void setVirtual(boolean virtual) {
+        if (propertyChange("virtual", modelAndView.isVirtual(), virtual, true)) {
+            modelAndView.setVirtual(virtual);
+        }
+    }
+
+    /**
+     * Updates the rendered combo items when the client reports a change in the visible region.
+     *
+     * @param event The viewport event.
+     */
+    @EventHandler(value = "viewport", syncToClient = false)
+    private void _onViewport(ViewportEvent event) {
+        modelAndView.setViewport(event.getFirst(), event.getCount());
+    }
+
     @Override
     public void destroy() {
         super.destroy();
@@ -20,20 +20,33 @@
  */
 package org.fujion.component;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
 import org.fujion.annotation.Component;
 import org.fujion.annotation.Component.ChildTag;
 import org.fujion.annotation.Component.PropertyGetter;
 import org.fujion.annotation.Component.PropertySetter;
+import org.fujion.annotation.EventHandler;
+import org.fujion.event.ViewportEvent;
+import org.fujion.model.IListModel;
+import org.fujion.model.IListModel.ListEventType;
 import org.fujion.model.IModelAndView;
 import org.fujion.model.ISupportsModel;
 import org.fujion.model.ModelAndView;
 
 /**
  * A component representing a simple list box control.
+ * <p>
+ * In virtual mode, list items are created and destroyed as they enter and leave the rendered
+ * window, so the selection is tracked by model index rather than by list item. Selected model
+ * objects that are not currently rendered remain selected and are counted by
+ * {@link #getSelectedCount}, but are not returned by {@link #getSelected} or
+ * {@link #getSelectedItem}.
  */
 @Component(tag = "listbox", widgetClass = "Listbox", parentTag = "*", childTag = @ChildTag("listitem"))
 public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem> {
@@ -42,10 +55,37 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
     
     private int size;
     
-    private final ModelAndView<Listitem, ?> modelAndView = new ModelAndView<>(this);
+    private final ModelAndView<Listitem, ?> modelAndView = new ModelAndView<Listitem, Object>(this) {
+        
+        @Override
+        public void setModel(IListModel<Object> model) {
+            selectedIndexes.clear();
+            super.setModel(model);
+        }
+        
+        @Override
+        public void onListChange(ListEventType type, int startIndex, int endIndex) {
+            updateSelectedIndexes(type, startIndex, endIndex);
+            super.onListChange(type, startIndex, endIndex);
+        }
+        
+        @Override
+        public void onListPermute(int startIndex, int endIndex, int[] permutation) {
+            int[] target = new int[endIndex - startIndex + 1];
+            
+            for (int i = startIndex; i <= endIndex; i++) {
+                target[permutation[i] - startIndex] = i;
+            }
+            
+            remapSelectedIndexes(i -> i < startIndex || i > endIndex ? i : target[i - startIndex]);
+            super.onListPermute(startIndex, endIndex, permutation);
+        }
+    };
     
     private final Set<Listitem> selected = new LinkedHashSet<>();
     
+    private final Set<Integer> selectedIndexes = new LinkedHashSet<>();
+    
     /**
      * Returns the multiple selection flag. If true, multiple list items may be selected at once.
      *
@@ -64,7 +104,7 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
     @PropertySetter("multiple")
     public void setMultiple(boolean multiple) {
         if (propertyChange("multiple", this.multiple, this.multiple = multiple, true)) {
-            if (!multiple && selected.size() > 1) {
+            if (!multiple && getSelectedCount() > 1) {
                 unselect(null);
             }
         }
@@ -91,7 +131,8 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
     }
     
     /**
-     * Returns the set of selected list items.
+     * Returns the set of selected list items. In virtual mode, only rendered list items are
+     * included.
      *
      * @return The set of selected list items (never null).
      */
@@ -105,12 +146,12 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
      * @return The number of selected list items.
      */
     public int getSelectedCount() {
-        return selected.size();
+        return isVirtual() ? selectedIndexes.size() : selected.size();
     }
     
     /**
      * Returns the selected list item, if any. If there are multiple selections, only the first will
-     * be returned.
+     * be returned. In virtual mode, only rendered list items are considered.
      *
      * @return The selected list item (may be null).
      */
@@ -134,22 +175,46 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
     
     /**
      * Returns the index of the selected list item. If there are multiple selections, the index of
-     * the first selected item will be returned.
+     * the first selected item will be returned. In virtual mode, this is the index of the selected
+     * model object.
      *
      * @return The index of the selected list item. If there is no current selection, returns -1.
      */
     public int getSelectedIndex() {
+        if (isVirtual()) {
+            return selectedIndexes.isEmpty() ? -1 : selectedIndexes.iterator().next();
+        }
+        
         Listitem item = getSelectedItem();
         return item == null ? -1 : item.getIndex();
     }
     
     /**
-     * Sets the selected list item by its index. Any existing selections are cleared.
+     * Sets the selected list item by its index. Any existing selections are cleared. In virtual
+     * mode, the index is that of a model object, which need not be rendered.
      *
      * @param index The index of the list item to be selected.
      */
     public void setSelectedIndex(int index) {
-        setSelectedItem((Listitem) getChildAt(index));
+        if (!isVirtual()) {
+            setSelectedItem((Listitem) getChildAt(index));
+            return;
+        }
+        
+        IListModel<?> model = modelAndView.getModel();
+        
+        if (model == null || index < 0 || index >= model.size()) {
+            throw new IndexOutOfBoundsException("Index out of range: " + index);
+        }
+        
+        Listitem item = modelAndView.getRenderedChild(index);
+        unselect(item);
+        
+        if (item != null) {
+            item.setSelected(true);
+        } else {
+            selectedIndexes.add(index);
+        }
     }
     
     /**
@@ -163,10 +228,17 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
                 unselect(null);
             }
             
+            Integer index = isVirtual() ? modelAndView.getModelIndex(item) : null;
+            
             if (item.isSelected()) {
                 selected.add(item);
+                
+                if (index != null) {
+                    selectedIndexes.add(index);
+                }
             } else {
                 selected.remove(item);
+                selectedIndexes.remove(index);
             }
         }
     }
@@ -191,20 +263,92 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
         }
         
         selected.clear();
+        selectedIndexes.clear();
+        
+        if (skip != null && skip.isSelected()) {
+            selected.add(skip);
+            
+            if (isVirtual()) {
+                selectedIndexes.add(modelAndView.getModelIndex(skip));
+            }
+        }
+    }
+    
+    /**
+     * In virtual mode, adjusts the selected model indexes to reflect a change to the model. When
+     * the model is replaced wholesale, as by a sort, the selection is cleared.
+     *
+     * @param type The type of change.
+     * @param startIndex Index of the first model object affected.
+     * @param endIndex Index of the last model object affected.
+     */
+    private void updateSelectedIndexes(ListEventType type, int startIndex, int endIndex) {
+        int count = endIndex - startIndex + 1;
+        
+        switch (type) {
+            case ADD:
+                remapSelectedIndexes(i -> i < startIndex ? i : i + count);
+                break;
+            
+            case DELETE:
+                remapSelectedIndexes(i -> i < startIndex ? i : i <= endIndex ? -1 : i - count);
+                break;
+            
+            case SWAP:
+                remapSelectedIndexes(i -> i == startIndex ? endIndex : i == endIndex ? startIndex : i);
+                break;
+            
+            case CHANGE:
+            case SORT:
+                selectedIndexes.clear();
+                break;
+            
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Replaces each selected model index with its mapped value, preserving the order of selection.
+     *
+     * @param mapping Maps an old index to a new one, or to -1 if the model object was removed.
+     */
+    private void remapSelectedIndexes(IntUnaryOperator mapping) {
+        if (!selectedIndexes.isEmpty()) {
+            List<Integer> indexes = new ArrayList<>(selectedIndexes);
+            selectedIndexes.clear();
+            
+            for (int index : indexes) {
+                int newIndex = mapping.applyAsInt(index);
+                
+                if (newIndex >= 0) {
+                    selectedIndexes.add(newIndex);
+                }
+            }
+        }
     }
     
     /**
-     * If the added list item is marked as selected, add it to the set of selected items.
+     * If the added list item is marked as selected, add it to the set of selected items. In virtual
+     * mode, a list item rendered for a selected model object is marked as selected.
      *
      * @see org.fujion.component.BaseComponent#afterAddChild(org.fujion.component.BaseComponent)
      */
     @Override
     protected void afterAddChild(BaseComponent child) {
-        _updateSelected((Listitem) child);
+        Listitem item = (Listitem) child;
+        
+        if (isVirtual() && selectedIndexes.contains(modelAndView.getModelIndex(item))) {
+            item._setSelected(true, true, false);
+            selected.add(item);
+        } else {
+            _updateSelected(item);
+        }
     }
     
     /**
-     * If the removed list item is marked as selected, remove it from the set of selected items.
+     * If the removed list item is marked as selected, remove it from the set of selected items. In
+     * virtual mode, the model object remains selected.
      *
      * @see org.fujion.component.BaseComponent#afterRemoveChild(org.fujion.component.BaseComponent)
      */
@@ -215,6 +359,43 @@ public class Listbox extends BaseUIComponent implements ISupportsModel<Listitem>
         }
     }
     
+    /**
+     * Returns true if virtual scrolling is enabled. When enabled, only those list items within or
+     * near the visible region are rendered. This requires that a model and renderer be used to
+     * generate list items.
+     *
+     * @return True if virtual scrolling is enabled.
+     */
+    @PropertyGetter("virtual")
+    public boolean isVirtual() {
+        return modelAndView.isVirtual();
+    }
+    
+    /**
+     * Enables or disables virtual scrolling. When enabled, only those list items within or near the
+     * visible region are rendered. This requires that a model and renderer be used to generate
+     * list items. Changing this setting clears the current selection.
+     *
+     * @param virtual True to enable virtual scrolling.
+     */
+    @PropertySetter("virtual")
+    public void setVirtual(boolean virtual) {
+        if (propertyChange("virtual", modelAndView.isVirtual(), virtual, true)) {
+            unselect(null);
+            modelAndView.setVirtual(virtual);
+        }
+    }
+    
+    /**
+     * Updates the rendered list items when the client reports a change in the visible region.
+     *
+     * @param event The viewport event.
+     */
+    @EventHandler(value = "viewport", syncToClient = false)
+    private void _onViewport(ViewportEvent event) {
+        modelAndView.setViewport(event.getFirst(), event.getCount());
+    }
+    
     @Override
     public void destroy() {
         super.destroy();
@@ -23,6 +23,7 @@ package org.fujion.component;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fujion.ancillary.ComponentException;
@@ -34,12 +35,12 @@ import org.fujion.annotation.Component.PropertyGetter;
 import org.fujion.annotation.Component.PropertySetter;
 import org.fujion.client.ClientRequest;
 import org.fujion.client.Synchronizer;
-import org.fujion.common.WeakMap;
 import org.fujion.core.WebUtil;
 import org.fujion.event.Event;
 import org.fujion.event.EventQueue;
 import org.fujion.page.PageRegistry;
 import org.fujion.websocket.Session;
+import org.fujion.websocket.WebSocketConfiguration;
 
 /**
  * This is the root component of a Fujion Server Page.
@@ -57,9 +58,9 @@ public final class Page extends BaseComponent implements INamespace {
 
     private int nextId;
 
-    private final Map<String, BaseComponent> ids = new WeakMap<>();
+    private final Map<String, BaseComponent> ids = new ConcurrentHashMap<>();
 
-    private final EventQueue eventQueue = new EventQueue(this);
+    private final EventQueue eventQueue = new EventQueue(this, WebSocketConfiguration.getEventQueueCapacity());
 
     private final Map<String, Object> browserInfo = new HashMap<>();
 
@@ -238,11 +239,16 @@ public final class Page extends BaseComponent implements INamespace {
         PageRegistry.unregisterPage(this);
         synchronizer.clear();
         eventQueue.clearAll();
+        ids.clear();
         session = null;
     }
 
     /**
-     * Registers/unregisters a component newly attached to this page.
+     * Registers/unregisters a component attached to this page. Components are strongly referenced
+     * by the registry until they are unregistered upon detachment or destruction (or the page itself
+     * is destroyed). A detached component is registered again when it is reattached. A "register"
+     * or "unregister" event is fired only if the registry changed and the page has a listener for
+     * it.
      *
      * @param component Component to register/unregister.
      * @param register If true, register the component. If false, unregister it.
@@ -255,14 +261,12 @@ public final class Page extends BaseComponent implements INamespace {
             component._setId(id);
         }
 
-        if (register) {
-            ids.put(id, component);
-        } else {
-            ids.remove(id);
-        }
+        boolean changed = register ? ids.put(id, component) != component : ids.remove(id) != null;
+        String eventType = register ? "register" : "unregister";
 
-        Event event = new Event(register ? "register" : "unregister", this, component);
-        fireEvent(event);
+        if (changed && hasEventListener(eventType)) {
+            fireEvent(new Event(eventType, this, component));
+        }
     }
 
     /**
@@ -22,6 +22,7 @@ package org.fujion.component;
 
 import java.util.Iterator;
 
+import org.fujion.ancillary.ICollapsible;
 import org.fujion.annotation.Component;
 import org.fujion.annotation.Component.ChildTag;
 import org.fujion.annotation.Component.PropertyGetter;
@@ -36,7 +37,7 @@ import org.fujion.event.EventUtil;
  */
 @Component(tag = "treenode", widgetModule = "fujion-treeview", widgetClass = "Treenode", parentTag = { "treeview",
         "treenode" }, childTag = @ChildTag("treenode"))
-public class Treenode extends BaseLabeledImageComponent<BaseLabeledComponent.LabelPositionNone> implements Iterable<Treenode> {
+public class Treenode extends BaseLabeledImageComponent<BaseLabeledComponent.LabelPositionNone> implements Iterable<Treenode>, ICollapsible {
 
     /**
      * Iterates over nodes in a tree in a depth first search. Is not susceptible to concurrent
@@ -134,6 +135,8 @@ public class Treenode extends BaseLabeledImageComponent<BaseLabeledComponent.Lab
 
     private boolean collapsed;
 
+    private boolean expandable;
+
     private boolean selected;
 
     private int badgeCounter;
@@ -225,6 +228,7 @@ public class Treenode extends BaseLabeledImageComponent<BaseLabeledComponent.Lab
      *
      * @return True if the node is collapsed.
      */
+    @Override
     @PropertyGetter("collapsed")
     public boolean isCollapsed() {
         return collapsed;
@@ -235,11 +239,35 @@ public class Treenode extends BaseLabeledImageComponent<BaseLabeledComponent.Lab
      *
      * @param collapsed True to collapse the node, false to expand it
      */
+    @Override
     @PropertySetter("collapsed")
     public void setCollapsed(boolean collapsed) {
         propertyChange("collapsed", this.collapsed, this.collapsed = collapsed, true);
     }
 
+    /**
+     * Returns true if the node is presented as expandable even when it has no children.
+     *
+     * @return True if the node is presented as expandable.
+     */
+    @Override
+    @PropertyGetter("expandable")
+    public boolean isExpandable() {
+        return expandable;
+    }
+
+    /**
+     * Set to true to present the node as expandable even when it has no children, as when its
+     * children are to be loaded only when it is expanded.
+     *
+     * @param expandable True to present the node as expandable.
+     */
+    @Override
+    @PropertySetter("expandable")
+    public void setExpandable(boolean expandable) {
+        propertyChange("expandable", this.expandable, this.expandable = expandable, true);
+    }
+
     /**
      * Ensures that this node is visible (i.e., all of its parent tree nodes are expanded.
      */
@@ -259,7 +287,7 @@ public class Treenode extends BaseLabeledImageComponent<BaseLabeledComponent.Lab
      */
     @EventHandler(value = "toggle", syncToClient = false)
     private void _onToggle() {
-        collapsed = !collapsed;
+        propertyChange("collapsed", collapsed, collapsed = !collapsed, false);
     }
 
     /**
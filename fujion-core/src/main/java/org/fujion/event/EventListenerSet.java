@@ -20,26 +20,33 @@
  */
 package org.fujion.event;
 
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * Represents a set of event listeners.
+ * Represents a set of event listeners. The set is copy-on-write: modifications replace the
+ * underlying array, so that dispatching an event requires neither locking nor copying, and listeners
+ * added or removed during dispatch do not affect the dispatch in progress. Listeners are notified in
+ * the order they were added.
  */
-public class EventListenerSet extends LinkedHashSet<IEventListener> implements IEventListener {
+public class EventListenerSet extends AbstractSet<IEventListener> implements IEventListener {
 
-    private static final long serialVersionUID = 1L;
+    private static final IEventListener[] EMPTY = new IEventListener[0];
+
+    private volatile IEventListener[] listeners = EMPTY;
 
     /**
      * Notify all listeners of the specified event. Terminates if event propagation is stopped. This
-     * operates on a copy of the set of registered listeners, so modifications to the original set
-     * will not affect the iteration.
+     * operates on a snapshot of the registered listeners, so modifications to the set will not
+     * affect the iteration.
      *
      * @param event An event.
      */
     @Override
     public void onEvent(Event event) {
-        for (IEventListener listener : new ArrayList<>(this)) {
+        for (IEventListener listener : listeners) {
             if (event.isStopped()) {
                 break;
             }
@@ -48,4 +55,101 @@ public class EventListenerSet extends LinkedHashSet<IEventListener> implements I
         }
     }
 
+    @Override
+    public synchronized boolean add(IEventListener listener) {
+        IEventListener[] current = listeners;
+
+        if (indexOf(current, listener) >= 0) {
+            return false;
+        }
+
+        IEventListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(Object listener) {
+        IEventListener[] current = listeners;
+        int index = indexOf(current, listener);
+
+        if (index < 0) {
+            return false;
+        }
+
+        IEventListener[] updated = new IEventListener[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        listeners = updated.length == 0 ? EMPTY : updated;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object listener) {
+        return indexOf(listeners, listener) >= 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        listeners = EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return listeners.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the registered listeners. The iterator supports
+     * removal.
+     */
+    @Override
+    public Iterator<IEventListener> iterator() {
+        IEventListener[] snapshot = listeners;
+
+        return new Iterator<IEventListener>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public IEventListener next() {
+                if (index >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+
+                return snapshot[index++];
+            }
+
+            @Override
+            public void remove() {
+                if (index == 0) {
+                    throw new IllegalStateException();
+                }
+
+                EventListenerSet.this.remove(snapshot[index - 1]);
+            }
+        };
+    }
+
+    private static int indexOf(IEventListener[] listeners, Object listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
 }
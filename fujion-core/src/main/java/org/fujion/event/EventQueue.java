@@ -20,7 +20,11 @@
  */
 package org.fujion.event;
 
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fujion.client.ExecutionContext;
 import org.fujion.component.Page;
@@ -29,52 +33,114 @@ import org.fujion.websocket.Session;
 /**
  * A page's queue for posted events. Queued (posted) events are delivered at the end of an execution
  * cycle. If an event is queued outside of the target page's execution context, it will be delivered
- * at the end of the next execution cycle for that page. To ensure timely delivery in such an
- * instance, a ping request is sent to the client in order to trigger an execution cycle for the
- * target page.
+ * by a server-initiated execution cycle for that page (see {@link Session#runOnPage}), without
+ * waiting for a client request. Events posted in quick succession are delivered in a single cycle.
+ * <p>
+ * The queue may be written by any number of threads without locking. Only one thread at a time
+ * consumes events.
  */
 public class EventQueue {
     
-    private final LinkedList<Event> queue = new LinkedList<>();
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    
+    private final AtomicInteger size = new AtomicInteger();
+    
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
     
     private final Page page;
     
+    private final int capacity;
+    
     /**
-     * Create a dedicated event queue for the page.
+     * Create a dedicated, unbounded event queue for the page.
      * 
      * @param page A page.
      */
     public EventQueue(Page page) {
+        this(page, 0);
+    }
+    
+    /**
+     * Create a dedicated event queue for the page.
+     *
+     * @param page A page.
+     * @param capacity The maximum number of events that may be queued. A value of &lt;= 0 means
+     *            the queue is unbounded.
+     */
+    public EventQueue(Page page, int capacity) {
         this.page = page;
+        this.capacity = capacity;
     }
     
     /**
      * Queue an event.
      *
      * @param event Event to queue.
+     * @exception IllegalStateException If the queue is at capacity.
      */
-    public synchronized void queue(Event event) {
+    public void queue(Event event) {
+        if (!offer(event)) {
+            throw new IllegalStateException("Event queue is full");
+        }
+    }
+    
+    /**
+     * Queue an event if capacity permits.
+     *
+     * @param event Event to queue.
+     * @return True if the event was queued, false if the queue is at capacity.
+     */
+    public boolean offer(Event event) {
         if (event.getPage() != page) {
             throw new RuntimeException("Event does not belong to this queue's page");
         }
         
+        if (size.incrementAndGet() > capacity && capacity > 0) {
+            size.decrementAndGet();
+            return false;
+        }
+        
         queue.add(event);
         
-        if (queue.size() == 1 && ExecutionContext.getPage() != page) {
+        if (ExecutionContext.getPage() != page && flushScheduled.compareAndSet(false, true)) {
             Session session = page.getSession();
             
             if (session != null) {
-                session.ping("flush");
+                session.runOnPage(this::processAll);
             }
         }
+        
+        return true;
+    }
+    
+    /**
+     * Removes queued events, in the order they were queued, and adds them to the specified
+     * collection.
+     *
+     * @param events Collection to receive the events.
+     * @param maxEvents The maximum number of events to remove.
+     * @return The number of events removed.
+     */
+    public synchronized int drainTo(Collection<? super Event> events, int maxEvents) {
+        int count = 0;
+        Event event;
+        
+        while (count < maxEvents && (event = poll()) != null) {
+            events.add(event);
+            count++;
+        }
+        
+        return count;
     }
     
     /**
-     * Process all queued events.
+     * Process all queued events, including any that are queued while processing.
      */
     public synchronized void processAll() {
-        while (!queue.isEmpty()) {
-            Event event = queue.removeFirst();
+        flushScheduled.set(false);
+        Event event;
+        
+        while ((event = poll()) != null) {
             EventUtil.send(event, event.getTarget() == null ? page : event.getTarget());
         }
     }
@@ -83,7 +149,9 @@ public class EventQueue {
      * Clear all queued events.
      */
     public synchronized void clearAll() {
-        queue.clear();
+        while (poll() != null) {
+            // Discard event.
+        }
     }
     
     /**
@@ -94,4 +162,32 @@ public class EventQueue {
     public boolean isEmpty() {
         return queue.isEmpty();
     }
+    
+    /**
+     * Returns the number of queued events.
+     *
+     * @return The number of queued events.
+     */
+    public int size() {
+        return size.get();
+    }
+    
+    /**
+     * Returns the maximum number of events that may be queued.
+     *
+     * @return The queue capacity. A value of &lt;= 0 means the queue is unbounded.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private Event poll() {
+        Event event = queue.poll();
+        
+        if (event != null) {
+            size.decrementAndGet();
+        }
+        
+        return event;
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.event;
+
+import org.fujion.annotation.EventType;
+import org.fujion.annotation.EventType.EventParameter;
+import org.fujion.component.BaseComponent;
+
+/**
+ * Reports the range of items visible within a virtually scrolled component.
+ */
+@EventType(ViewportEvent.TYPE)
+public class ViewportEvent extends Event {
+
+    /**
+     * The event type.
+     */
+    public static final String TYPE = "viewport";
+
+    @EventParameter
+    private int first;
+
+    @EventParameter
+    private int count;
+
+    public ViewportEvent() {
+        super(TYPE);
+    }
+
+    public ViewportEvent(BaseComponent target, Object data) {
+        super(TYPE, target, data);
+    }
+
+    /**
+     * Returns the index of the first visible item.
+     *
+     * @return The index of the first visible item.
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the number of visible items.
+     *
+     * @return The number of visible items.
+     */
+    public int getCount() {
+        return count;
+    }
+
+}
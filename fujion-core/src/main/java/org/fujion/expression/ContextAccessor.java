@@ -20,19 +20,61 @@
  */
 package org.fujion.expression;
 
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+
+import org.fujion.ancillary.MethodInvoker;
 import org.fujion.component.BaseComponent;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.beans.BeanUtils;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 
 /**
- * Property accessor for resolving property references during materialization.
+ * Property accessor for resolving property references during materialization. This accessor is
+ * compilable: compiled expressions call {@link #readValue} directly.
  */
-public class ContextAccessor implements PropertyAccessor {
+public class ContextAccessor implements CompilablePropertyAccessor {
     
     private static final Class<?>[] TARGET_CLASSES = { ELContext.class, BaseComponent.class };
     
+    private static final String CLASS_NAME = ContextAccessor.class.getName().replace('.', '/');
+    
+    /**
+     * Reads a property value from the target. Called by compiled expressions, which bypass
+     * {@link #canRead}. If the target is a component that lacks the named attribute, the value of
+     * the component's bean property of that name is returned instead, as would be found in
+     * interpreted mode, or null if there is no such property. Null is also returned for a target
+     * that is neither a context nor a component. A missing property never throws, so compiled code
+     * behaves the same whatever the compiler mode.
+     *
+     * @param target The target object.
+     * @param name The property name.
+     * @return The property value.
+     */
+    public static Object readValue(Object target, String name) {
+        if (target instanceof ELContext) {
+            return ((ELContext) target).getValue(name);
+        }
+        
+        if (!(target instanceof BaseComponent)) {
+            return null;
+        }
+        
+        BaseComponent component = (BaseComponent) target;
+        
+        if (component.hasAttribute(name)) {
+            return component.getAttribute(name);
+        }
+        
+        PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(component.getClass(), name);
+        Method getter = pd == null ? null : pd.getReadMethod();
+        return getter == null ? null : MethodInvoker.forMethod(getter).invoke(component);
+    }
+    
     @Override
     public Class<?>[] getSpecificTargetClasses() {
         return TARGET_CLASSES;
@@ -56,6 +98,27 @@ public class ContextAccessor implements PropertyAccessor {
         return new TypedValue(result);
     }
     
+    @Override
+    public boolean isCompilable() {
+        return true;
+    }
+    
+    @Override
+    public Class<?> getPropertyType() {
+        return Object.class;
+    }
+    
+    @Override
+    public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+        if (cf.lastDescriptor() == null) {
+            cf.loadTarget(mv);
+        }
+        
+        mv.visitLdcInsn(propertyName);
+        mv.visitMethodInsn(INVOKESTATIC, CLASS_NAME, "readValue", "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+            false);
+    }
+    
     @Override
     public boolean canWrite(EvaluationContext context, Object target, String name) throws AccessException {
         return false;
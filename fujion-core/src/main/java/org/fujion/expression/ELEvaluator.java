@@ -20,6 +20,11 @@
  */
 package org.fujion.expression;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.ApplicationContext;
@@ -34,23 +39,38 @@ import org.springframework.expression.MethodResolver;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.expression.spel.support.StandardTypeConverter;
 
 /**
- * An extension of Spring's EL evaluator that supports plugin accessors, resolvers, and converters..
+ * An extension of Spring's EL evaluator that supports plugin accessors, resolvers, and converters.
+ * Parsed expressions are cached by their source text. Text that contains no expression delimiter is
+ * treated as a literal and bypasses the parser entirely. Optionally, frequently evaluated
+ * expressions may be compiled to bytecode (see {@link #setCompilerMode}).
  */
 public class ELEvaluator extends StandardEvaluationContext implements BeanPostProcessor, ApplicationContextAware {
 
     private static final ELEvaluator instance = new ELEvaluator();
 
-    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private volatile SpelExpressionParser parser = new SpelExpressionParser();
+
+    private volatile SpelCompilerMode compilerMode = SpelCompilerMode.OFF;
 
     private final ParserContext templateContext = new TemplateParserContext("${", "}");
 
     private final DefaultConversionService conversionService = new DefaultConversionService();
 
+    private final Map<String, Expression> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private volatile int maxCacheSize = 1000;
+
     public static ELEvaluator getInstance() {
         return instance;
     }
@@ -72,7 +92,7 @@ public class ELEvaluator extends StandardEvaluationContext implements BeanPostPr
      * @return The result of the evaluation.
      */
     public Object evaluate(String expression, Object root) {
-        return parseExpression(expression).getValue(this, root);
+        return isLiteral(expression) ? expression : parseExpression(expression).getValue(this, root);
     }
 
     /**
@@ -82,17 +102,124 @@ public class ELEvaluator extends StandardEvaluationContext implements BeanPostPr
      * @return The result of the evaluation.
      */
     public Object evaluate(String expression) {
-        return parseExpression(expression).getValue(this);
+        return isLiteral(expression) ? expression : parseExpression(expression).getValue(this);
+    }
+
+    /**
+     * Returns true if the text contains no EL expressions and so evaluates to itself.
+     *
+     * @param text The text to examine.
+     * @return True if the text is a literal.
+     */
+    public static boolean isLiteral(String text) {
+        return text == null || !text.contains("${");
     }
 
     /**
-     * Parse an EL expression.
+     * Parse an EL expression, returning a cached copy if available. If the cache is full, an
+     * arbitrary entry is evicted to make room.
      *
      * @param expression An EL expression.
      * @return The parsed expression.
      */
     private Expression parseExpression(String expression) {
-        return parser.parseExpression(expression, templateContext);
+        Expression parsed = cache.get(expression);
+
+        if (parsed != null) {
+            cacheHits.incrementAndGet();
+            return parsed;
+        }
+
+        cacheMisses.incrementAndGet();
+        parsed = parser.parseExpression(expression, templateContext);
+
+        if (maxCacheSize > 0) {
+            Iterator<String> iterator = cache.keySet().iterator();
+
+            while (cache.size() >= maxCacheSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+
+            cache.put(expression, parsed);
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Returns the SpEL compiler mode.
+     *
+     * @return The compiler mode.
+     */
+    public SpelCompilerMode getCompilerMode() {
+        return compilerMode;
+    }
+
+    /**
+     * Sets the SpEL compiler mode. In IMMEDIATE mode, expressions are compiled after their first
+     * interpreted evaluation, and any exception thrown by compiled code propagates to the caller.
+     * In MIXED mode, expressions are compiled once they have been evaluated a number of times, and
+     * revert to interpreted mode if compiled code throws. Property references resolved against a
+     * component or materialization context compile to code that does not throw when the property
+     * is absent (see {@link ContextAccessor#readValue}). Expressions that cannot be compiled (e.g.,
+     * message references) are always interpreted. Changing the mode clears the expression cache.
+     *
+     * @param compilerMode The compiler mode (OFF, IMMEDIATE, or MIXED).
+     */
+    public void setCompilerMode(SpelCompilerMode compilerMode) {
+        this.compilerMode = compilerMode;
+        parser = new SpelExpressionParser(new SpelParserConfiguration(compilerMode, getClass().getClassLoader()));
+        cache.clear();
+    }
+
+    /**
+     * Returns the maximum number of parsed expressions to cache.
+     *
+     * @return The maximum cache size.
+     */
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of parsed expressions to cache. A value of &lt;= 0 disables caching.
+     *
+     * @param maxCacheSize The maximum cache size.
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+
+        if (maxCacheSize <= 0) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of parsed expressions currently cached.
+     *
+     * @return The cache size.
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of times a parsed expression was found in the cache.
+     *
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Returns the number of times an expression had to be parsed.
+     *
+     * @return The number of cache misses.
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
     }
 
     @Override
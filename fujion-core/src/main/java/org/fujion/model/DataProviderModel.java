@@ -0,0 +1,410 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * A read-only list model backed by a data provider. Model objects are fetched from the provider in
+ * blocks as they are accessed, and only a limited number of blocks are retained. Since a model and
+ * view accesses only the model objects it renders, paging through the model (or scrolling in
+ * virtual mode) fetches only the data that is displayed. Sorting and filtering are delegated to the
+ * provider.
+ * <p>
+ * The model does not observe the data source. Call {@link #refresh} after the data changes.
+ * <p>
+ * {@link #indexOf} and {@link #contains} search the retained blocks before deferring to
+ * {@link IDataProvider#indexOf}. Other operations that visit every model object, such as iteration,
+ * fetch the entire data set from the provider and should be avoided for a large data source.
+ *
+ * @param <M> The type of the model object.
+ * @param <F> The type of the filter.
+ */
+public class DataProviderModel<M, F> implements IListModel<M> {
+    
+    private final IDataProvider<M, F> provider;
+    
+    private final List<IListModelListener> listeners = new ArrayList<>();
+    
+    private final List<M> view = new AbstractList<M>() {
+        
+        @Override
+        public M get(int index) {
+            return DataProviderModel.this.get(index);
+        }
+        
+        @Override
+        public int size() {
+            return DataProviderModel.this.size();
+        }
+    };
+    
+    private final Map<Integer, List<M>> blocks = new LinkedHashMap<Integer, List<M>>(16, 0.75f, true) {
+        
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<M>> eldest) {
+            return size() > maxBlocks;
+        }
+    };
+    
+    private int blockSize = 100;
+    
+    private int maxBlocks = 10;
+    
+    private int size = -1;
+    
+    private Comparator<? super M> comparator;
+    
+    private boolean ascending = true;
+    
+    private F filter;
+    
+    public DataProviderModel(IDataProvider<M, F> provider) {
+        Assert.notNull(provider, "A data provider must be specified");
+        this.provider = provider;
+    }
+    
+    /**
+     * Returns the data provider.
+     *
+     * @return The data provider.
+     */
+    public IDataProvider<M, F> getProvider() {
+        return provider;
+    }
+    
+    /**
+     * Returns the number of model objects fetched from the provider in a single request.
+     *
+     * @return The block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+    
+    /**
+     * Sets the number of model objects fetched from the provider in a single request. This will
+     * typically be at least the page size of any associated paginator.
+     *
+     * @param blockSize The block size.
+     */
+    public void setBlockSize(int blockSize) {
+        Assert.isTrue(blockSize > 0, "Block size must be positive");
+        
+        if (blockSize != this.blockSize) {
+            this.blockSize = blockSize;
+            blocks.clear();
+        }
+    }
+    
+    /**
+     * Returns the maximum number of fetched blocks to retain.
+     *
+     * @return The maximum number of fetched blocks to retain.
+     */
+    public int getMaxBlocks() {
+        return maxBlocks;
+    }
+    
+    /**
+     * Sets the maximum number of fetched blocks to retain. When exceeded, the least recently
+     * accessed block is discarded.
+     *
+     * @param maxBlocks The maximum number of fetched blocks to retain.
+     */
+    public void setMaxBlocks(int maxBlocks) {
+        Assert.isTrue(maxBlocks > 0, "Maximum blocks must be positive");
+        this.maxBlocks = maxBlocks;
+    }
+    
+    /**
+     * Returns the current filter.
+     *
+     * @return The current filter (may be null).
+     */
+    public F getFilter() {
+        return filter;
+    }
+    
+    /**
+     * Sets the filter to be applied by the provider. Listeners are notified that the model has
+     * changed.
+     *
+     * @param filter The new filter. If null, no filtering is applied.
+     */
+    public void setFilter(F filter) {
+        this.filter = filter;
+        refresh();
+    }
+    
+    /**
+     * Returns the comparator specifying the current sort order.
+     *
+     * @return The comparator specifying the current sort order. If null, the provider's native
+     *         order applies.
+     */
+    public Comparator<? super M> getComparator() {
+        return comparator;
+    }
+    
+    /**
+     * Returns true if the current sort order is ascending.
+     *
+     * @return True if the current sort order is ascending.
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+    
+    /**
+     * Discards all fetched model objects and notifies listeners that the model has changed. Call
+     * this after the underlying data changes.
+     */
+    public void refresh() {
+        size = -1;
+        blocks.clear();
+        fireEvent(ListEventType.CHANGE, -1, -1);
+    }
+    
+    /**
+     * Sets the sort order to be applied by the provider. Listeners are notified that the model has
+     * been sorted.
+     *
+     * @param comparator The comparator specifying the sort order. Unlike other list models, if
+     *            null, the provider's native order applies.
+     * @param ascending If true, sort list in ascending order; otherwise, in descending order.
+     */
+    @Override
+    public void sort(Comparator<? super M> comparator, boolean ascending) {
+        this.comparator = comparator;
+        this.ascending = ascending;
+        blocks.clear();
+        int i = size();
+        
+        if (i > 1) {
+            fireEvent(ListEventType.SORT, 0, i - 1);
+        }
+    }
+    
+    @Override
+    public M get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        
+        Integer block = index / blockSize;
+        List<M> values = blocks.get(block);
+        
+        if (values == null) {
+            values = provider.fetch(block * blockSize, blockSize, comparator, ascending, filter);
+            blocks.put(block, values);
+        }
+        
+        int offset = index % blockSize;
+        return offset < values.size() ? values.get(offset) : null;
+    }
+    
+    @Override
+    public int size() {
+        if (size < 0) {
+            size = provider.count(filter);
+        }
+        
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * Fires a list event to all listeners.
+     *
+     * @param type The type of event.
+     * @param startIndex Index of the first affected element.
+     * @param endIndex Index of last affected element.
+     */
+    private void fireEvent(ListEventType type, int startIndex, int endIndex) {
+        for (IListModelListener listener : listeners) {
+            listener.onListChange(type, startIndex, endIndex);
+        }
+    }
+    
+    @Override
+    public boolean addEventListener(IListModelListener listener) {
+        return listeners.add(listener);
+    }
+    
+    @Override
+    public void removeAllListeners() {
+        listeners.clear();
+    }
+    
+    @Override
+    public boolean removeEventListener(IListModelListener listener) {
+        return listeners.remove(listener);
+    }
+    
+    @Override
+    public boolean contains(Object value) {
+        return indexOf(value) >= 0;
+    }
+    
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return view.containsAll(c);
+    }
+    
+    @Override
+    public int indexOf(Object value) {
+        for (Map.Entry<Integer, List<M>> entry : blocks.entrySet()) {
+            int index = entry.getValue().indexOf(value);
+            
+            if (index >= 0) {
+                return entry.getKey() * blockSize + index;
+            }
+        }
+        
+        return provider.indexOf(value, comparator, ascending, filter);
+    }
+    
+    /**
+     * Releases the data provider's resources.
+     *
+     * @see IDataProvider#destroy
+     */
+    public void destroy() {
+        provider.destroy();
+    }
+    
+    @Override
+    public int lastIndexOf(Object value) {
+        return view.lastIndexOf(value);
+    }
+    
+    @Override
+    public Iterator<M> iterator() {
+        return view.iterator();
+    }
+    
+    @Override
+    public ListIterator<M> listIterator() {
+        return view.listIterator();
+    }
+    
+    @Override
+    public ListIterator<M> listIterator(int index) {
+        return view.listIterator(index);
+    }
+    
+    @Override
+    public List<M> subList(int fromIndex, int toIndex) {
+        return view.subList(fromIndex, toIndex);
+    }
+    
+    @Override
+    public Object[] toArray() {
+        return view.toArray();
+    }
+    
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return view.toArray(a);
+    }
+    
+    @Override
+    public boolean add(M value) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void add(int index, M value) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean addAll(Collection<? extends M> c) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean addAll(int index, Collection<? extends M> c) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public M remove(int index) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean remove(Object value) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean removeRange(int start, int end) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public M set(int index, M value) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void swap(int index1, int index2) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void swap(M value1, M value2) {
+        throw new UnsupportedOperationException();
+    }
+}
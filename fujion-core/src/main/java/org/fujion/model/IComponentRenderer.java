@@ -37,4 +37,17 @@ public interface IComponentRenderer<T extends BaseComponent, M> {
      * @return A new component instance (never null).
      */
     T render(M model);
+    
+    /**
+     * Updates a previously rendered component in place to reflect a replacement model object.
+     * Renderers that do not support this return false, in which case the component is destroyed
+     * and the replacement rendered anew.
+     *
+     * @param component The previously rendered component.
+     * @param model The replacement model object.
+     * @return True if the component was updated.
+     */
+    default boolean update(T component, M model) {
+        return false;
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.model;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Supplies model objects on demand from a data source that need not be held in memory, such as a
+ * database query or a search index. Paging, sorting and filtering are delegated to the provider so
+ * that they may be performed by the data source itself.
+ *
+ * @param <M> The type of the model object.
+ * @param <F> The type of the filter. Its interpretation is left to the provider.
+ */
+public interface IDataProvider<M, F> {
+    
+    /**
+     * Returns the number of model objects satisfying the filter.
+     *
+     * @param filter The filter to apply. If null, no filtering is applied.
+     * @return The number of model objects satisfying the filter.
+     */
+    int count(F filter);
+    
+    /**
+     * Fetches a range of model objects satisfying the filter, in the specified sort order.
+     *
+     * @param offset Index of the first model object to fetch.
+     * @param limit Maximum number of model objects to fetch.
+     * @param comparator The comparator specifying the sort order. If null, the data source's native
+     *            order applies. Providers that sort within the data source itself will typically
+     *            recognize a {@link SmartComparator} and sort on its {@link SmartComparator#getName
+     *            property}.
+     * @param ascending If true, sort in ascending order; otherwise, in descending order.
+     * @param filter The filter to apply. If null, no filtering is applied.
+     * @return The fetched model objects. This may contain fewer than the limit only if the end of
+     *         the data has been reached.
+     */
+    List<M> fetch(int offset, int limit, Comparator<? super M> comparator, boolean ascending, F filter);
+    
+    /**
+     * Returns the index of a model object among those satisfying the filter, in the specified sort
+     * order. The default implementation fetches and searches the model objects block by block,
+     * which may be costly for a large data source. Providers that can locate a model object within
+     * the data source itself should override it.
+     *
+     * @param value The model object to locate.
+     * @param comparator The comparator specifying the sort order (may be null).
+     * @param ascending If true, sort in ascending order; otherwise, in descending order.
+     * @param filter The filter to apply. If null, no filtering is applied.
+     * @return The index of the model object, or -1 if not found.
+     */
+    default int indexOf(Object value, Comparator<? super M> comparator, boolean ascending, F filter) {
+        int limit = 100;
+        
+        for (int offset = 0;; offset += limit) {
+            List<M> values = fetch(offset, limit, comparator, ascending, filter);
+            int index = values.indexOf(value);
+            
+            if (index >= 0) {
+                return offset + index;
+            }
+            
+            if (values.size() < limit) {
+                return -1;
+            }
+        }
+    }
+    
+    /**
+     * Releases any resources held by the provider, such as registrations with the underlying data
+     * source. Called when a view replaces a model it created from this provider. A provider may
+     * still be used afterwards. The default implementation does nothing.
+     */
+    default void destroy() {
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.model;
+
+/**
+ * A nested model whose child models are fetched only on demand. When rendered into components that
+ * support collapsing, the child models are not retrieved until the component is first expanded.
+ *
+ * @param <M> The type of the model object.
+ */
+public interface ILazyNestedModel<M> extends INestedModel<M> {
+    
+    /**
+     * Returns true if the parent may have children. This is used as a hint to present the parent
+     * as expandable and should not require the children to be fetched.
+     *
+     * @param parent Parent whose children are sought.
+     * @return True if the parent may have children.
+     */
+    boolean hasChildren(M parent);
+}
@@ -36,6 +36,20 @@ public interface IListModel<M> extends List<M> {
     interface IListModelListener {
         
         void onListChange(ListEventType type, int startIndex, int endIndex);
+        
+        /**
+         * Called when elements within a range have been reordered without otherwise changing the
+         * list, as by a sort. The default implementation reports this as a SORT event over the
+         * affected range.
+         *
+         * @param startIndex Index of the first element whose position changed.
+         * @param endIndex Index of the last element whose position changed.
+         * @param permutation For each index in the list, the index that the element now occupying
+         *            it held before the reordering.
+         */
+        default void onListPermute(int startIndex, int endIndex, int[] permutation) {
+            onListChange(ListEventType.SORT, startIndex, endIndex);
+        }
     }
     
     /**
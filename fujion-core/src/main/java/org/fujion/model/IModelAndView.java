@@ -45,6 +45,17 @@ public interface IModelAndView<T extends BaseComponent, M> {
      */
     void setModel(IListModel<M> model);
     
+    /**
+     * Sets a data provider as the source of model objects. The provider is wrapped in a
+     * {@link DataProviderModel}, which becomes the list model, so that only the model objects to be
+     * rendered are fetched, and sorting and filtering are performed by the provider.
+     *
+     * @param provider The data provider, or null to remove an existing model.
+     */
+    default void setDataProvider(IDataProvider<M, ?> provider) {
+        setModel(provider == null ? null : new DataProviderModel<>(provider));
+    }
+    
     /**
      * Returns the paging controller, if any.
      *
@@ -106,4 +117,78 @@ public interface IModelAndView<T extends BaseComponent, M> {
      * @param value The deferred rendering setting.
      */
     void setDeferredRendering(boolean value);
+    
+    /**
+     * Returns true if the rendered children of a lazy nested model are to be released when their
+     * parent component is collapsed. They are fetched and rendered again when it is next expanded.
+     *
+     * @return True if children are released on collapse.
+     * @see ILazyNestedModel
+     */
+    boolean isReleaseOnCollapse();
+    
+    /**
+     * Set to true to release the rendered children of a lazy nested model when their parent
+     * component is collapsed.
+     *
+     * @param releaseOnCollapse True to release children on collapse.
+     * @see ILazyNestedModel
+     */
+    void setReleaseOnCollapse(boolean releaseOnCollapse);
+    
+    /**
+     * Returns true if virtual mode is active. In virtual mode, only model objects within a window
+     * surrounding the client's viewport are rendered.
+     *
+     * @return True if virtual mode is active.
+     */
+    boolean isVirtual();
+    
+    /**
+     * Activates or deactivates virtual mode. In virtual mode, only model objects within a window
+     * surrounding the client's viewport are rendered. Changing the mode forces a re-rendering.
+     *
+     * @param virtual If true, activate virtual mode.
+     */
+    void setVirtual(boolean virtual);
+    
+    /**
+     * Returns the number of model objects to be rendered beyond either edge of the viewport in
+     * virtual mode.
+     *
+     * @return The overscan.
+     */
+    int getOverscan();
+    
+    /**
+     * Sets the number of model objects to be rendered beyond either edge of the viewport in virtual
+     * mode. A larger value reduces the frequency of rendering while scrolling at the expense of a
+     * larger window.
+     *
+     * @param overscan The overscan.
+     */
+    void setOverscan(int overscan);
+    
+    /**
+     * Returns the index, relative to the current page, of the first model object in the viewport.
+     *
+     * @return Index of the first model object in the viewport.
+     */
+    int getViewportFirst();
+    
+    /**
+     * Returns the number of model objects in the viewport.
+     *
+     * @return Number of model objects in the viewport.
+     */
+    int getViewportCount();
+    
+    /**
+     * Sets the viewport. This is normally reported by the client as it scrolls. In virtual mode,
+     * the rendering is updated to cover the new viewport plus the overscan.
+     *
+     * @param first Index, relative to the current page, of the first model object in the viewport.
+     * @param count Number of model objects in the viewport.
+     */
+    void setViewport(int first, int count);
 }
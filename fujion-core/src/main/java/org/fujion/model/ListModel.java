@@ -25,21 +25,23 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections.ComparatorUtils;
 import org.apache.commons.collections.IteratorUtils;
 
 /**
- * Implementation of a list model.
+ * Implementation of a list model. Model objects are held in an array-backed list, so access by
+ * index is constant-time. Bulk operations report their changes as ranged events so that listeners
+ * may update incrementally rather than starting over.
  *
  * @param <M> The class of the model object.
  */
 public class ListModel<M> implements IListModel<M> {
     
-    private final List<M> list = new LinkedList<>();
+    private final ArrayList<M> list = new ArrayList<>();
     
     private final List<IListModelListener> listeners = new ArrayList<>();
     
@@ -76,7 +78,7 @@ public class ListModel<M> implements IListModel<M> {
     public boolean addAll(int index, Collection<? extends M> c) {
         int i = list.size();
         
-        if (list.addAll(c)) {
+        if (list.addAll(index, c)) {
             int delta = list.size() - i;
             fireEvent(ListEventType.ADD, index, index + delta - 1);
             return true;
@@ -123,6 +125,19 @@ public class ListModel<M> implements IListModel<M> {
         }
     }
     
+    /**
+     * Fires a permutation event to all listeners.
+     *
+     * @param startIndex Index of the first element whose position changed.
+     * @param endIndex Index of the last element whose position changed.
+     * @param permutation For each index, the former index of the element now occupying it.
+     */
+    private void firePermute(int startIndex, int endIndex, int[] permutation) {
+        for (IListModelListener listener : listeners) {
+            listener.onListPermute(startIndex, endIndex, permutation);
+        }
+    }
+    
     @Override
     public M get(int index) {
         return list.get(index);
@@ -181,30 +196,51 @@ public class ListModel<M> implements IListModel<M> {
     
     @Override
     public boolean removeAll(Collection<?> c) {
-        if (list.removeAll(c)) {
-            fireEvent(ListEventType.CHANGE, -1, -1);
-            return true;
+        return removeIf(c::contains);
+    }
+    
+    /**
+     * Removes all elements satisfying the filter. Each contiguous run of removed elements is
+     * reported as a separate DELETE event, starting with the last run, so that the indexes of each
+     * event remain valid at the time it is fired.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super M> filter) {
+        boolean result = false;
+        int end = list.size() - 1;
+        
+        while (end >= 0) {
+            if (!filter.test(list.get(end))) {
+                end--;
+                continue;
+            }
+            
+            int start = end;
+            
+            while (start > 0 && filter.test(list.get(start - 1))) {
+                start--;
+            }
+            
+            removeRange(start, end);
+            result = true;
+            end = start - 1;
         }
         
-        return false;
+        return result;
     }
     
     @Override
     public boolean removeRange(int start, int end) {
         validateIndex(start);
         validateIndex(end);
-        boolean result = false;
         
-        for (int i = end; i >= start; i--) {
-            list.remove(i);
-            result = true;
-        }
-        
-        if (result) {
-            fireEvent(ListEventType.DELETE, start, end);
+        if (start > end) {
+            return false;
         }
         
-        return result;
+        list.subList(start, end + 1).clear();
+        fireEvent(ListEventType.DELETE, start, end);
+        return true;
     }
     
     /**
@@ -231,12 +267,7 @@ public class ListModel<M> implements IListModel<M> {
     
     @Override
     public boolean retainAll(Collection<?> c) {
-        if (list.retainAll(c)) {
-            fireEvent(ListEventType.CHANGE, -1, -1);
-            return true;
-        }
-        
-        return false;
+        return removeIf(value -> !c.contains(value));
     }
     
     @Override
@@ -255,24 +286,47 @@ public class ListModel<M> implements IListModel<M> {
         return list.size();
     }
     
+    /**
+     * Sorts the list in place. The sort is stable. If the order changes, listeners receive a single
+     * permutation event describing where each element came from.
+     */
     @SuppressWarnings({ "unchecked" })
     @Override
     public void sort(Comparator<? super M> comparator, boolean ascending) {
-        comparator = comparator != null ? comparator : ComparatorUtils.NATURAL_COMPARATOR;
-        comparator = ascending ? comparator : ComparatorUtils.reversedComparator(comparator);
-        boolean changed = false;
-        M[] a = (M[]) list.toArray();
-        Arrays.sort(a, comparator);
+        Comparator<? super M> cmp = comparator != null ? comparator : ComparatorUtils.NATURAL_COMPARATOR;
+        Comparator<? super M> sorter = ascending ? cmp : ComparatorUtils.reversedComparator(cmp);
+        int size = list.size();
+        Integer[] order = new Integer[size];
         
-        for (int newIndex = 0; newIndex < a.length; newIndex++) {
-            int oldIndex = list.indexOf(a[newIndex]);
-            changed |= oldIndex != newIndex;
-            swap(newIndex, oldIndex);
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
         }
         
-        if (changed) {
-            fireEvent(ListEventType.SORT, -1, -1);
+        Arrays.sort(order, (i1, i2) -> sorter.compare(list.get(i1), list.get(i2)));
+        int start = 0;
+        int end = size - 1;
+        
+        while (start < size && order[start] == start) {
+            start++;
+        }
+        
+        if (start == size) {
+            return;
+        }
+        
+        while (order[end] == end) {
+            end--;
         }
+        
+        Object[] values = list.toArray();
+        int[] permutation = new int[size];
+        
+        for (int i = 0; i < size; i++) {
+            permutation[i] = order[i];
+            list.set(i, (M) values[order[i]]);
+        }
+        
+        firePermute(start, end, permutation);
     }
     
     @Override
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.fujion.model.IListModel.IListModelListener;
+import org.fujion.model.IListModel.ListEventType;
+import org.springframework.util.Assert;
+
+/**
+ * A data provider over an in-memory list model, allowing existing models to be used where a data
+ * provider is expected. Filters are predicates. The filtered and sorted result of the most recent
+ * request is retained until the request criteria or the list model change, so that successive
+ * fetches for the same criteria are served without repeating the work.
+ *
+ * @param <M> The type of the model object.
+ */
+public class ListModelDataProvider<M> implements IDataProvider<M, Predicate<? super M>>, IListModelListener {
+    
+    private final IListModel<M> model;
+    
+    private List<M> result;
+    
+    private Comparator<? super M> comparator;
+    
+    private boolean ascending = true;
+    
+    private Predicate<? super M> filter;
+    
+    private boolean listening;
+    
+    public ListModelDataProvider(IListModel<M> model) {
+        Assert.notNull(model, "A list model must be specified");
+        this.model = model;
+        listen();
+    }
+    
+    /**
+     * Returns the underlying list model.
+     *
+     * @return The underlying list model.
+     */
+    public IListModel<M> getModel() {
+        return model;
+    }
+    
+    /**
+     * Returns the number of model objects satisfying the filter. The sort order of the most recent
+     * request is retained, so that a subsequent fetch with that order reuses the filtered result.
+     */
+    @Override
+    public int count(Predicate<? super M> filter) {
+        return filter == null ? model.size() : getResult(comparator, ascending, filter).size();
+    }
+    
+    /**
+     * Locates the model object within the filtered and sorted result, without copying it.
+     */
+    @Override
+    public int indexOf(Object value, Comparator<? super M> comparator, boolean ascending,
+                       Predicate<? super M> filter) {
+        return getResult(comparator, ascending, filter).indexOf(value);
+    }
+    
+    /**
+     * Stops listening for changes to the list model and discards the retained result. Listening
+     * resumes when the provider is next used.
+     */
+    @Override
+    public void destroy() {
+        model.removeEventListener(this);
+        listening = false;
+        result = null;
+    }
+    
+    /**
+     * Registers to be notified of changes to the list model, if not already registered.
+     */
+    private void listen() {
+        if (!listening) {
+            model.addEventListener(this);
+            listening = true;
+        }
+    }
+    
+    @Override
+    public List<M> fetch(int offset, int limit, Comparator<? super M> comparator, boolean ascending,
+                         Predicate<? super M> filter) {
+        List<M> result = getResult(comparator, ascending, filter);
+        int start = Math.min(offset, result.size());
+        int end = Math.min(start + limit, result.size());
+        List<M> values = new ArrayList<>(end - start);
+        
+        for (int i = start; i < end; i++) {
+            values.add(result.get(i));
+        }
+        
+        return values;
+    }
+    
+    /**
+     * Returns the list model contents after filtering and sorting, reusing the previous result if
+     * the criteria are unchanged.
+     *
+     * @param comparator The comparator specifying the sort order (may be null).
+     * @param ascending If true, sort in ascending order.
+     * @param filter The filter (may be null).
+     * @return The filtered and sorted model objects.
+     */
+    private List<M> getResult(Comparator<? super M> comparator, boolean ascending, Predicate<? super M> filter) {
+        listen();
+        
+        if (comparator == null && filter == null) {
+            return model;
+        }
+        
+        if (result == null || !Objects.equals(filter, this.filter) || !Objects.equals(comparator, this.comparator)
+                || ascending != this.ascending) {
+            result = new ArrayList<>(model.size());
+            
+            for (M value : model) {
+                if (filter == null || filter.test(value)) {
+                    result.add(value);
+                }
+            }
+            
+            if (comparator != null) {
+                result.sort(ascending ? comparator : Collections.reverseOrder(comparator));
+            }
+            
+            this.comparator = comparator;
+            this.ascending = ascending;
+            this.filter = filter;
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Discards the retained result when the list model changes.
+     */
+    @Override
+    public void onListChange(ListEventType type, int startIndex, int endIndex) {
+        result = null;
+    }
+}
@@ -23,16 +23,24 @@ package org.fujion.model;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.fujion.ancillary.ICollapsible;
 import org.fujion.client.Synchronizer;
 import org.fujion.component.BaseComponent;
 import org.fujion.component.Page;
+import org.fujion.event.Event;
+import org.fujion.event.IEventListener;
+import org.fujion.event.PropertychangeEvent;
 import org.fujion.model.IListModel.IListModelListener;
 import org.fujion.model.IListModel.ListEventType;
 import org.fujion.model.IPaginator.IPagingListener;
 import org.fujion.model.IPaginator.PagingEventType;
 
 /**
- * Associates a model with a view renderer.
+ * Associates a model with a view renderer. In virtual mode, only the model objects within a window
+ * surrounding the client's viewport (plus an overscan margin on either side) are rendered. As the
+ * viewport moves, components for model objects leaving the window are destroyed and those for
+ * model objects entering it are rendered, so that the cost of rendering is proportional to the size
+ * of the window, not the size of the model.
  *
  * @param <T> The component type to be rendered.
  * @param <M> The model type.
@@ -48,6 +56,22 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
     private Map<BaseComponent, ModelAndView<T, M>> linkedViews;
     
     private boolean deferredRendering;
+    
+    private boolean releaseOnCollapse;
+    
+    private final IEventListener collapseListener = this::onCollapseChange;
+    
+    private boolean virtual;
+    
+    private int viewportFirst;
+    
+    private int viewportCount = 50;
+    
+    private int overscan = 25;
+    
+    private int renderedStart;
+    
+    private DataProviderModel<M, ?> providerModel;
 
     private final Paginator paginator;
     
@@ -87,6 +111,11 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
             this.model.removeEventListener(this);
         }
         
+        if (providerModel != null && providerModel != model) {
+            providerModel.destroy();
+            providerModel = null;
+        }
+        
         this.model = model;
         
         if (this.model != null) {
@@ -97,6 +126,18 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
         rerender();
     }
     
+    /**
+     * Wraps the data provider in a {@link DataProviderModel}, which becomes the list model. The
+     * provider is released (see {@link IDataProvider#destroy}) when that model is replaced or the
+     * view is destroyed.
+     */
+    @Override
+    public void setDataProvider(IDataProvider<M, ?> provider) {
+        DataProviderModel<M, ?> providerModel = provider == null ? null : new DataProviderModel<>(provider);
+        setModel(providerModel);
+        this.providerModel = providerModel;
+    }
+    
     private Map<BaseComponent, ModelAndView<T, M>> getLinkedViews() {
         if (linkedViews == null) {
             linkedViews = new HashMap<>();
@@ -105,14 +146,118 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
         return linkedViews;
     }
     
+    /**
+     * Returns the index of the model object rendered as the child at the specified index.
+     *
+     * @param childIndex The child index.
+     * @return The model index.
+     */
+    private int getModelIndex(int childIndex) {
+        return childIndex + (virtual ? renderedStart : getPageStart());
+    }
+    
+    /**
+     * Returns the index of the model object from which the specified child was rendered.
+     *
+     * @param child A child of the view's parent.
+     * @return The model index, or -1 if the component is not a child of the view's parent.
+     */
+    public int getModelIndex(BaseComponent child) {
+        return parent == null || child == null || child.getParent() != parent ? -1 : getModelIndex(child.getIndex());
+    }
+    
+    /**
+     * Returns the child rendered for the model object at the specified index.
+     *
+     * @param modelIndex The model index.
+     * @return The rendered child, or null if the model object does not currently have a rendered
+     *         child.
+     */
+    @SuppressWarnings("unchecked")
+    public T getRenderedChild(int modelIndex) {
+        int childIndex = parent == null || modelIndex < 0 || !isRendered(modelIndex) ? -1 : getChildIndex(modelIndex);
+        return childIndex < 0 || childIndex >= parent.getChildCount() ? null : (T) parent.getChildAt(childIndex);
+    }
+    
     private int getChildIndex(int modelIndex) {
-        if (paginator.isDisabled()) {
+        if (virtual) {
+            return modelIndex - renderedStart;
+        } else if (paginator.isDisabled()) {
             return modelIndex;
         } else {
             return modelIndex - paginator.getModelOffset(paginator.getCurrentPage());
         }
     }
     
+    /**
+     * Returns the index of the first model object in the current page.
+     *
+     * @return Index of the first model object in the current page.
+     */
+    private int getPageStart() {
+        return paginator.getModelOffset(paginator.getCurrentPage());
+    }
+    
+    /**
+     * Returns the index following the last model object in the current page.
+     *
+     * @return Index following the last model object in the current page.
+     */
+    private int getPageEnd() {
+        if (paginator.isDisabled()) {
+            return model == null ? 0 : model.size();
+        } else {
+            return paginator.getModelOffset(paginator.getCurrentPage() + 1);
+        }
+    }
+    
+    /**
+     * Returns the index of the first model object to be rendered. In virtual mode, this is the
+     * start of the viewport less the overscan, relative to the current page.
+     *
+     * @return Index of the first model object to be rendered.
+     */
+    private int getWindowStart() {
+        int start = getPageStart();
+        return virtual ? Math.min(getPageEnd(), start + Math.max(0, viewportFirst - overscan)) : start;
+    }
+    
+    /**
+     * Returns the index following the last model object to be rendered. In virtual mode, this is
+     * the end of the viewport plus the overscan, relative to the current page.
+     *
+     * @return Index following the last model object to be rendered.
+     */
+    private int getWindowEnd() {
+        int end = getPageEnd();
+        return virtual ? Math.min(end, getPageStart() + viewportFirst + viewportCount + overscan) : end;
+    }
+    
+    /**
+     * Returns true if the model object at the specified index falls within the range to be
+     * rendered.
+     *
+     * @param modelIndex The model index.
+     * @return True if the model object should be rendered.
+     */
+    private boolean inRange(int modelIndex) {
+        return virtual ? modelIndex >= getWindowStart() && modelIndex < getWindowEnd() : paginator.inRange(modelIndex);
+    }
+    
+    /**
+     * Returns true if the model object at the specified index currently has a rendered component.
+     *
+     * @param modelIndex The model index.
+     * @return True if the model object has been rendered.
+     */
+    private boolean isRendered(int modelIndex) {
+        if (virtual) {
+            return modelIndex >= renderedStart && modelIndex < renderedStart + parent.getChildCount();
+        } else {
+            return paginator.inRange(modelIndex);
+        }
+    }
+    
     @Override
     public void rerender() {
         removeLinkedViews();
@@ -121,6 +266,8 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
             parent.destroyChildren();
         }
         
+        renderedStart = getWindowStart();
+        
         if (model != null && parent != null && renderer != null) {
             try {
                 onRenderStart();
@@ -134,6 +281,64 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
                 onRenderStop();
             }
         }
+        
+        syncWindow();
+    }
+    
+    /**
+     * In virtual mode, brings the rendered components into line with the current window. Rendered
+     * components that remain within the window are retained; only those leaving the window are
+     * destroyed and only those entering it are rendered.
+     */
+    private void reconcile() {
+        if (model == null || parent == null || renderer == null) {
+            return;
+        }
+        
+        int start = getWindowStart();
+        int end = getWindowEnd();
+        int renderedEnd = renderedStart + parent.getChildCount();
+        
+        if (start >= renderedEnd || end <= renderedStart) {
+            rerender();
+            return;
+        }
+        
+        try {
+            onRenderStart();
+            
+            for (; renderedStart < start; renderedStart++) {
+                _destroyChild(renderedStart);
+            }
+            
+            while (renderedEnd > end) {
+                _destroyChild(--renderedEnd);
+            }
+            
+            while (renderedStart > start) {
+                _renderChild(--renderedStart);
+            }
+            
+            for (; renderedEnd < end; renderedEnd++) {
+                _renderChild(renderedEnd);
+            }
+        } finally {
+            onRenderStop();
+        }
+        
+        syncWindow();
+    }
+    
+    /**
+     * In virtual mode, notifies the client of the position of the rendered components within the
+     * current page and of the size of the page, so that it may account for model objects that have
+     * not been rendered.
+     */
+    private void syncWindow() {
+        if (virtual && parent != null) {
+            int pageStart = getPageStart();
+            parent.invokeIfAttached("virtualWindow", renderedStart - pageStart, getPageEnd() - pageStart);
+        }
     }
     
     /**
@@ -176,19 +381,98 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
      *         pagination is active and the child falls outside the current page.
      */
     protected T renderChild(int modelIndex) {
-        if (renderer != null && paginator.inRange(modelIndex)) {
-            M mdl = model.get(modelIndex);
-            T child = renderer.render(mdl);
-            parent.addChild(child, getChildIndex(modelIndex));
+        return renderer != null && inRange(modelIndex) ? _renderChild(modelIndex) : null;
+    }
+    
+    private T _renderChild(int modelIndex) {
+        M mdl = model.get(modelIndex);
+        T child = renderer.render(mdl);
+        parent.addChild(child, getChildIndex(modelIndex));
+        
+        if (model instanceof ILazyNestedModel && child instanceof ICollapsible) {
+            initLazyChild(child, mdl);
+        } else if (model instanceof INestedModel) {
+            getLinkedViews().put(child, new ModelAndView<>(child, ((INestedModel<M>) model).getChildren(mdl), renderer));
+        }
+        
+        return child;
+    }
+    
+    /**
+     * Prepares a component rendered from a lazy nested model. If the model object may have
+     * children, the component is presented as expandable and its children are not fetched until it
+     * is expanded.
+     *
+     * @param child The rendered component.
+     * @param mdl The model object.
+     */
+    private void initLazyChild(T child, M mdl) {
+        boolean hasChildren = ((ILazyNestedModel<M>) model).hasChildren(mdl);
+        ((ICollapsible) child).setExpandable(hasChildren);
+        
+        if (hasChildren) {
+            child.addEventListener(PropertychangeEvent.TYPE, collapseListener, false);
             
-            if (model instanceof INestedModel) {
-                getLinkedViews().put(child, new ModelAndView<>(child, ((INestedModel<M>) model).getChildren(mdl), renderer));
+            if (!((ICollapsible) child).isCollapsed()) {
+                expandChild(child, mdl);
             }
-            
-            return child;
+        }
+    }
+    
+    /**
+     * Fetches and renders the children of a lazily rendered component when it is expanded and, if
+     * so configured, releases them when it is collapsed.
+     *
+     * @param event The property change event.
+     */
+    @SuppressWarnings("unchecked")
+    private void onCollapseChange(Event event) {
+        PropertychangeEvent pce = (PropertychangeEvent) event;
+        T child = (T) pce.getTarget();
+        
+        if (!"collapsed".equals(pce.getPropertyName()) || child.getParent() != parent || model == null) {
+            return;
+        }
+        
+        if (!((ICollapsible) child).isCollapsed()) {
+            expandChild(child, model.get(getModelIndex(child.getIndex())));
+        } else if (releaseOnCollapse) {
+            releaseChild(child);
+        }
+    }
+    
+    /**
+     * Renders the children of a lazily rendered component, if not already rendered.
+     *
+     * @param child The rendered component.
+     * @param mdl The model object.
+     */
+    private void expandChild(T child, M mdl) {
+        if (linkedViews != null && linkedViews.containsKey(child)) {
+            return;
         }
         
-        return null;
+        IListModel<M> children = ((ILazyNestedModel<M>) model).getChildren(mdl);
+        ModelAndView<T, M> linkedView = new ModelAndView<>(child, children, renderer);
+        linkedView.releaseOnCollapse = releaseOnCollapse;
+        getLinkedViews().put(child, linkedView);
+        ((ICollapsible) child).setExpandable(children != null && !children.isEmpty());
+    }
+    
+    /**
+     * Releases the rendered children of a lazily rendered component. The component remains
+     * expandable so that they may be fetched again.
+     *
+     * @param child The rendered component.
+     */
+    private void releaseChild(T child) {
+        ModelAndView<T, M> linkedView = linkedViews == null ? null : linkedViews.remove(child);
+        
+        if (linkedView != null) {
+            linkedView.destroy();
+            child.destroyChildren();
+            ((ICollapsible) child).setExpandable(true);
+        }
     }
     
     /**
@@ -197,18 +481,22 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
      * @param modelIndex The index of the model object.
      */
     protected void destroyChild(int modelIndex) {
-        if (paginator.inRange(modelIndex)) {
-            BaseComponent child = parent.getChildAt(getChildIndex(modelIndex));
-            ModelAndView<T, M> linkedView = linkedViews == null ? null : linkedViews.get(child);
-
-            if (linkedView != null) {
-                linkedViews.remove(child);
-                linkedView.destroy();
-            }
-            child.destroy();
+        if (isRendered(modelIndex)) {
+            _destroyChild(modelIndex);
         }
     }
     
+    private void _destroyChild(int modelIndex) {
+        BaseComponent child = parent.getChildAt(getChildIndex(modelIndex));
+        ModelAndView<T, M> linkedView = linkedViews == null ? null : linkedViews.get(child);
+        
+        if (linkedView != null) {
+            linkedViews.remove(child);
+            linkedView.destroy();
+        }
+        child.destroy();
+    }
+    
     private void removeLinkedViews() {
         if (linkedViews != null) {
             for (ModelAndView<T, M> linkedView : linkedViews.values()) {
@@ -226,6 +514,11 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
         if (model != null) {
             model.removeEventListener(this);
         }
+        
+        if (providerModel != null) {
+            providerModel.destroy();
+            providerModel = null;
+        }
 
         paginator.removeAllListeners();
         removeLinkedViews();
@@ -245,6 +538,11 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
     public void onListChange(ListEventType type, int startIndex, int endIndex) {
         paginator.setModelSize(model.size());
         
+        if (virtual) {
+            onVirtualListChange(type, startIndex, endIndex);
+            return;
+        }
+        
         switch (type) {
             case ADD:
                 startIndex = adjustIndex(startIndex);
@@ -271,8 +569,10 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
                 break;
 
             case REPLACE:
-                onListChange(ListEventType.DELETE, startIndex, endIndex);
-                onListChange(ListEventType.ADD, startIndex, endIndex);
+                for (int i = startIndex; i <= endIndex; i++) {
+                    replaceChild(i);
+                }
+
                 break;
 
             case SWAP:
@@ -283,12 +583,106 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
                 break;
             
             case SORT:
-                if (!paginator.isDisabled()) {
-                    rerender();
+                rerender();
+                break;
+        }
+    }
+    
+    /**
+     * Reorders the rendered components to reflect a reordering of the model, as by a sort. The
+     * components are neither destroyed nor re-rendered, and the client receives a single
+     * instruction to rearrange them. If any model object moving into the rendered range was not
+     * previously rendered (as may happen when paging or in virtual mode), falls back to a full
+     * rendering.
+     *
+     * @see org.fujion.model.IListModel.IListModelListener#onListPermute(int, int, int[])
+     */
+    @Override
+    public void onListPermute(int startIndex, int endIndex, int[] permutation) {
+        if (model == null || parent == null || renderer == null) {
+            return;
+        }
+        
+        int first = virtual ? renderedStart : getPageStart();
+        int last = first + parent.getChildCount() - 1;
+        int start = Math.max(startIndex, first);
+        int end = Math.min(endIndex, last);
+        
+        if (start > end) {
+            return;
+        }
+        
+        int[] order = new int[end - start + 1];
+        
+        for (int i = start; i <= end; i++) {
+            int source = permutation[i];
+            
+            if (source < first || source > last) {
+                rerender();
+                return;
+            }
+            
+            order[i - start] = source - first;
+        }
+        
+        parent.reorderChildren(start - first, order);
+    }
+    
+    /**
+     * Updates the rendering in virtual mode when the model changes. Rendered components are first
+     * adjusted to reflect the change, then reconciled with the (possibly shifted) window. For an
+     * insertion within the rendered range, the components from the insertion point onward are
+     * destroyed, so that reconciliation renders no more than the window holds.
+     *
+     * @param type The type of change.
+     * @param startIndex Index of the first model object affected.
+     * @param endIndex Index of the last model object affected.
+     */
+    private void onVirtualListChange(ListEventType type, int startIndex, int endIndex) {
+        switch (type) {
+            case ADD:
+                if (startIndex <= renderedStart) {
+                    renderedStart += endIndex - startIndex + 1;
+                } else if (startIndex < renderedStart + parent.getChildCount()) {
+                    for (int i = renderedStart + parent.getChildCount() - 1; i >= startIndex; i--) {
+                        _destroyChild(i);
+                    }
                 }
-
+                
                 break;
+            
+            case DELETE:
+                for (int i = endIndex; i >= startIndex; i--) {
+                    destroyChild(i);
+                }
+                
+                renderedStart -= Math.max(0, Math.min(endIndex + 1, renderedStart) - startIndex);
+                break;
+            
+            case REPLACE:
+                for (int i = startIndex; i <= endIndex; i++) {
+                    replaceChild(i);
+                }
+                
+                break;
+            
+            case SWAP:
+                if (isRendered(startIndex) && isRendered(endIndex)) {
+                    parent.swapChildren(getChildIndex(startIndex), getChildIndex(endIndex));
+                } else {
+                    rerender(startIndex);
+                    rerender(endIndex);
+                }
+                
+                break;
+            
+            case CHANGE:
+            case SORT:
+                rerender();
+                return;
         }
+        
+        reconcile();
     }
     
     /**
@@ -298,13 +692,12 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
      * @return Adjusted index.
      */
     private int adjustIndex(int modelIndex) {
-        if (modelIndex < 0 || paginator.isDisabled()) {
+        if (modelIndex < 0 || (paginator.isDisabled() && !virtual)) {
             return modelIndex;
         }
         
-        int page = paginator.getCurrentPage();
-        int min = paginator.getModelOffset(page);
-        int max = paginator.getModelOffset(page + 1) - 1;
+        int min = getWindowStart();
+        int max = getWindowEnd() - 1;
         return modelIndex < min ? min : modelIndex > max ? max : modelIndex;
     }
     
@@ -313,11 +706,45 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
         return rerender(model.indexOf(object));
     }
     
+    /**
+     * Updates the component rendered for the model object at the specified index after that model
+     * object has been replaced. The component is updated in place if the renderer supports it, and
+     * re-rendered otherwise.
+     *
+     * @param modelIndex The index of the replaced model object.
+     */
+    @SuppressWarnings("unchecked")
+    private void replaceChild(int modelIndex) {
+        if (renderer == null || parent == null || !isRendered(modelIndex)) {
+            return;
+        }
+        
+        T child = (T) parent.getChildAt(getChildIndex(modelIndex));
+        M mdl = model.get(modelIndex);
+        
+        if (!renderer.update(child, mdl)) {
+            rerender(modelIndex);
+        } else if (model instanceof ILazyNestedModel && child instanceof ICollapsible) {
+            releaseChild(child);
+            child.removeEventListener(PropertychangeEvent.TYPE, collapseListener, false);
+            initLazyChild(child, mdl);
+        } else if (model instanceof INestedModel) {
+            ModelAndView<T, M> linkedView = getLinkedViews().get(child);
+            IListModel<M> children = ((INestedModel<M>) model).getChildren(mdl);
+            
+            if (linkedView == null) {
+                getLinkedViews().put(child, new ModelAndView<>(child, children, renderer));
+            } else if (linkedView.getModel() != children) {
+                linkedView.setModel(children);
+            }
+        }
+    }
+    
     @Override
     public T rerender(int modelIndex) {
-        if (paginator.inRange(modelIndex)) {
-            destroyChild(modelIndex);
-            return renderChild(modelIndex);
+        if (isRendered(modelIndex)) {
+            _destroyChild(modelIndex);
+            return _renderChild(modelIndex);
         } else {
             return null;
         }
@@ -333,6 +760,69 @@ public class ModelAndView<T extends BaseComponent, M> implements IListModelListe
         deferredRendering = value;
     }
     
+    @Override
+    public boolean isReleaseOnCollapse() {
+        return releaseOnCollapse;
+    }
+    
+    @Override
+    public void setReleaseOnCollapse(boolean releaseOnCollapse) {
+        this.releaseOnCollapse = releaseOnCollapse;
+        
+        if (linkedViews != null) {
+            for (ModelAndView<T, M> linkedView : linkedViews.values()) {
+                linkedView.setReleaseOnCollapse(releaseOnCollapse);
+            }
+        }
+    }
+    
+    @Override
+    public boolean isVirtual() {
+        return virtual;
+    }
+    
+    @Override
+    public void setVirtual(boolean virtual) {
+        if (virtual != this.virtual) {
+            this.virtual = virtual;
+            rerender();
+        }
+    }
+    
+    @Override
+    public int getOverscan() {
+        return overscan;
+    }
+    
+    @Override
+    public void setOverscan(int overscan) {
+        this.overscan = Math.max(0, overscan);
+        
+        if (virtual) {
+            reconcile();
+        }
+    }
+    
+    @Override
+    public int getViewportFirst() {
+        return viewportFirst;
+    }
+    
+    @Override
+    public int getViewportCount() {
+        return viewportCount;
+    }
+    
+    @Override
+    public void setViewport(int first, int count) {
+        viewportFirst = Math.max(0, first);
+        viewportCount = Math.max(0, count);
+        
+        if (virtual) {
+            reconcile();
+        }
+    }
+    
     @Override
     public IPaginator getPaginator() {
         return paginator;
@@ -67,6 +67,24 @@ public class SmartComparator implements Comparator<Object> {
         this.caseSensitive = caseSensitive;
     }
     
+    /**
+     * Returns the name of the property or field used for comparison.
+     *
+     * @return The property or field name.
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Returns true if comparing by instance field rather than by property.
+     *
+     * @return True if comparing by instance field.
+     */
+    public boolean isField() {
+        return isField;
+    }
+    
     @SuppressWarnings("unchecked")
     @Override
     public int compare(Object bean1, Object bean2) {
@@ -0,0 +1,217 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.page;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.fujion.ancillary.ConvertUtil;
+import org.fujion.ancillary.DeferredInvocation;
+import org.fujion.annotation.ComponentDefinition;
+import org.fujion.component.BaseComponent;
+import org.fujion.component.Page;
+import org.fujion.expression.ELContext;
+import org.fujion.expression.ELEvaluator;
+
+/**
+ * The compiled form of a page element. Everything needed to materialize the element that does not
+ * depend on the instance being created is resolved once: factory parameters are separated from
+ * properties, literal values are converted to the property type in advance, and properties whose
+ * values are EL expressions are identified.
+ */
+class CompiledElement {
+    
+    private static final CompiledElement[] NO_CHILDREN = new CompiledElement[0];
+    
+    /**
+     * A compiled attribute. If the attribute is a literal, its value has been converted to the
+     * property type where possible.
+     */
+    private static class CompiledAttribute {
+        
+        private final String name;
+        
+        private final String text;
+        
+        private final boolean expression;
+        
+        private final Object value;
+        
+        CompiledAttribute(ComponentDefinition def, String name, String text, boolean expression) {
+            this.name = name;
+            this.text = text;
+            this.expression = expression;
+            this.value = expression ? null : preconvert(def, name, text);
+        }
+        
+        /**
+         * Converts a literal value to the property type. Conversions that depend on the component
+         * instance (i.e., component references), and those that fail, are left to be performed when
+         * the property is set.
+         *
+         * @param def The component definition.
+         * @param name The property name.
+         * @param text The literal value.
+         * @return The converted value, or the original text if not converted.
+         */
+        private static Object preconvert(ComponentDefinition def, String name, String text) {
+            Class<?> type = def.getPropertyType(name);
+            
+            if (type == null || BaseComponent.class.isAssignableFrom(type)) {
+                return text;
+            }
+            
+            try {
+                return ConvertUtil.convert(text, type);
+            } catch (Exception e) {
+                return text;
+            }
+        }
+    }
+    
+    private final PageElement element;
+    
+    private final ComponentDefinition definition;
+    
+    private final Map<String, String> factoryAttributes;
+    
+    private final CompiledAttribute[] attributes;
+    
+    private final boolean hasExpressions;
+    
+    private final CompiledElement[] children;
+    
+    /**
+     * Compiles a list of page elements.
+     *
+     * @param elements The page elements (may be null).
+     * @return The compiled elements.
+     */
+    static CompiledElement[] compile(List<PageElement> elements) {
+        if (elements == null || elements.isEmpty()) {
+            return NO_CHILDREN;
+        }
+        
+        CompiledElement[] compiled = new CompiledElement[elements.size()];
+        
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = new CompiledElement(elements.get(i));
+        }
+        
+        return compiled;
+    }
+    
+    private CompiledElement(PageElement element) {
+        this.element = element;
+        this.definition = element.getDefinition();
+        Map<String, String> attrs = element.getAttributes();
+        Map<String, String> factoryAttrs = null;
+        List<CompiledAttribute> compiled = new ArrayList<>();
+        boolean hasExpressions = false;
+        
+        if (attrs != null) {
+            for (Entry<String, String> entry : attrs.entrySet()) {
+                String name = entry.getKey();
+                
+                if (definition.getFactoryParameters().containsKey(name)) {
+                    factoryAttrs = factoryAttrs == null ? new HashMap<>() : factoryAttrs;
+                    factoryAttrs.put(name, entry.getValue());
+                } else {
+                    boolean expression = element.isExpression(name);
+                    hasExpressions |= expression;
+                    compiled.add(new CompiledAttribute(definition, name, entry.getValue(), expression));
+                }
+            }
+        }
+        
+        this.factoryAttributes = factoryAttrs;
+        this.attributes = compiled.toArray(new CompiledAttribute[compiled.size()]);
+        this.hasExpressions = hasExpressions;
+        this.children = compile(element.getChildren());
+    }
+    
+    /**
+     * Returns the definition of the component produced by this element.
+     *
+     * @return The component definition.
+     */
+    ComponentDefinition getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns the compiled child elements.
+     *
+     * @return The compiled child elements.
+     */
+    CompiledElement[] getChildren() {
+        return children;
+    }
+    
+    /**
+     * Materializes the component represented by this element, and all of its descendants.
+     *
+     * @param parent The parent component (may be null).
+     * @param deferrals Receives deferred property setter invocations.
+     * @param args The argument map passed to the materializer (may be null).
+     * @return The materialized component, or null if creation was suppressed.
+     */
+    BaseComponent materialize(BaseComponent parent, List<DeferredInvocation<?>> deferrals, Map<String, Object> args) {
+        BaseComponent component;
+        
+        if (parent instanceof Page && definition.getComponentClass() == Page.class) {
+            component = parent;
+            parent = null;
+        } else {
+            component = definition.getFactory()
+                    .create(factoryAttributes == null ? null : new HashMap<>(factoryAttributes));
+            
+            if (component == null) {
+                return null;
+            }
+        }
+        
+        ELContext elContext = hasExpressions ? new ELContext(component, parent, element, args) : null;
+        
+        for (CompiledAttribute attribute : attributes) {
+            Object value = attribute.expression ? ELEvaluator.getInstance().evaluate(attribute.text, elContext)
+                    : attribute.value;
+            DeferredInvocation<?> deferral = definition.setProperty(component, attribute.name, value);
+            
+            if (deferral != null) {
+                deferrals.add(deferral);
+            }
+        }
+        
+        if (parent != null) {
+            parent.addChild(component);
+        }
+        
+        for (CompiledElement child : children) {
+            child.materialize(component, deferrals, args);
+        }
+        
+        return component;
+    }
+}
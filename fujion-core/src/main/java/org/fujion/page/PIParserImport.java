@@ -35,7 +35,14 @@ public class PIParserImport extends PIParserBase {
     @Override
     public void parse(ProcessingInstruction pi, PageElement element) {
         try {
-            PageSource source = new PageSource(getAttribute(pi, "src", true));
+            String src = getAttribute(pi, "src", true);
+            PageSource source = new PageSource(src);
+            PageDefinition pageDefinition = element.getPageDefinition();
+            
+            if (pageDefinition != null) {
+                pageDefinition.addImport(src);
+            }
+            
             PageParser.getInstance().parse(source, element);
         } catch (Exception e) {
             throw MiscUtil.toUnchecked(e);
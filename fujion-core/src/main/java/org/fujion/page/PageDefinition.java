@@ -21,28 +21,35 @@
 package org.fujion.page;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 
 import org.fujion.ancillary.ComponentException;
 import org.fujion.ancillary.DeferredInvocation;
-import org.fujion.annotation.ComponentDefinition;
 import org.fujion.component.BaseComponent;
 import org.fujion.component.Page;
-import org.fujion.expression.ELContext;
-import org.fujion.expression.ELEvaluator;
 
 /**
  * This represents the compiled form of a single Fujion server page. It is a simple wrapper of a
- * tree of page elements, rooted at the root element.
+ * tree of page elements, rooted at the root element. On first materialization, the tree is further
+ * compiled into a form that resolves, once, everything that does not vary between instances.
  */
 public class PageDefinition {
     
-    private final PageElement root = new PageElement(null, null);
+    private final PageElement root = new PageElement(this);
+
+    private final Set<String> imports = new LinkedHashSet<>();
     
     private String source;
     
+    private volatile CompiledElement[] compiled;
+    
+    private long lastModified;
+    
+    private volatile long lastChecked;
+    
     /**
      * The root of all page elements in this definition.
      *
@@ -70,6 +77,62 @@ public class PageDefinition {
         this.source = source;
     }
     
+    /**
+     * Returns the URLs of all sources imported into this page definition.
+     *
+     * @return The URLs of imported sources, in order of import.
+     */
+    /*package*/ Set<String> getImports() {
+        return imports;
+    }
+    
+    /**
+     * Records the URL of a source imported into this page definition.
+     *
+     * @param src The URL of the imported source.
+     */
+    /*package*/ void addImport(String src) {
+        imports.add(src);
+    }
+    
+    /**
+     * Returns the latest last modified time of the source and its imports at the time this page
+     * definition was compiled.
+     *
+     * @return The last modified time, or 0 if unknown.
+     */
+    /*package*/ long getLastModified() {
+        return lastModified;
+    }
+    
+    /**
+     * Sets the latest last modified time of the source and its imports at the time this page
+     * definition was compiled.
+     *
+     * @param lastModified The last modified time.
+     */
+    /*package*/ void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+    
+    /**
+     * Returns the time the source was last checked for modification.
+     *
+     * @return The time of the last check.
+     */
+    /*package*/ long getLastChecked() {
+        return lastChecked;
+    }
+    
+    /**
+     * Sets the time the source was last checked for modification.
+     *
+     * @param lastChecked The time of the last check.
+     */
+    /*package*/ void setLastChecked(long lastChecked) {
+        this.lastChecked = lastChecked;
+    }
+    
     /**
      * Materializes this page definition under the given parent component.
      *
@@ -92,14 +155,22 @@ public class PageDefinition {
         try {
             List<DeferredInvocation<?>> deferrals = new ArrayList<>();
             List<BaseComponent> created = new ArrayList<>();
-            List<PageElement> children = root.getChildren();
+            CompiledElement[] children = getCompiled();
 
-            if (!(parent instanceof Page) && children.size() == 1
-                    && children.get(0).getDefinition().getComponentClass() == Page.class) {
-                children = children.get(0).getChildren();
+            if (!(parent instanceof Page) && children.length == 1
+                    && children[0].getDefinition().getComponentClass() == Page.class) {
+                children = children[0].getChildren();
             }
             
-            materialize(children, parent, deferrals, args, created);
+            for (CompiledElement child : children) {
+                BaseComponent component = child.materialize(parent, deferrals, args);
+                
+                if (args != null && !args.isEmpty()) {
+                    component.getAttributes().putAll(args);
+                }
+                
+                created.add(component);
+            }
 
             for (DeferredInvocation<?> deferral : deferrals) {
                 deferral.invoke();
@@ -111,62 +182,25 @@ public class PageDefinition {
         }
     }
     
-    private void materialize(Iterable<PageElement> children, BaseComponent parent, List<DeferredInvocation<?>> deferrals,
-                             Map<String, Object> args, List<BaseComponent> created) {
-        if (children != null) {
-            for (PageElement child : children) {
-                BaseComponent component = materialize(child, parent, deferrals, args);
-                
-                if (created != null) {
-                    if (args != null && !args.isEmpty()) {
-                        component.getAttributes().putAll(args);
-                    }
-
-                    created.add(component);
-                }
-            }
-        }
+    /**
+     * Compiles the page elements in advance of first materialization.
+     */
+    /*package*/ void compile() {
+        getCompiled();
     }
     
-    private BaseComponent materialize(PageElement element, BaseComponent parent, List<DeferredInvocation<?>> deferrals,
-                                      Map<String, Object> args) {
-        ComponentDefinition def = element.getDefinition();
-        boolean merge = parent instanceof Page && def.getComponentClass() == Page.class;
-        Map<String, String> attributes;
-        BaseComponent component;
-        
-        if (merge) {
-            component = parent;
-            parent = null;
-            attributes = element.getAttributes();
-        } else {
-            attributes = element.getAttributes();
-            component = def.getFactory().create(attributes);
-            
-            if (component == null) {
-                return null;
-            }
-        }
-        
-        if (attributes != null) {
-            ELContext elContext = new ELContext(component, parent, element, args);
-            
-            for (Entry<String, String> attribute : attributes.entrySet()) {
-                Object value = ELEvaluator.getInstance().evaluate(attribute.getValue(), elContext);
-                DeferredInvocation<?> deferral = def.setProperty(component, attribute.getKey(), value);
-                
-                if (deferral != null) {
-                    deferrals.add(deferral);
-                }
-            }
-        }
+    /**
+     * Returns the compiled form of the top level page elements, compiling them on first use.
+     *
+     * @return The compiled top level page elements.
+     */
+    private CompiledElement[] getCompiled() {
+        CompiledElement[] result = compiled;
         
-        if (parent != null) {
-            parent.addChild(component);
+        if (result == null) {
+            compiled = result = CompiledElement.compile(root.getChildren());
         }
         
-        materialize(element.getChildren(), component, deferrals, args, null);
-        
-        return component;
+        return result;
     }
 }
@@ -20,20 +20,46 @@
  */
 package org.fujion.page;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.fujion.common.AbstractCache;
 import org.fujion.common.MiscUtil;
 import org.fujion.core.WebUtil;
 
 /**
  * A cache of all compiled page definitions. If a requested page is not in the cache, it will be
- * automatically compiled and added to the cache.
+ * automatically compiled and added to the cache. The cache may be bounded in size (see
+ * {@link #setMaxSize}). If revalidation is enabled, a cached page definition whose source has been
+ * modified since it was compiled is recompiled on next access. If a disk cache directory is
+ * specified (see {@link #setDiskCacheDirectory}), compiled page definitions are also persisted
+ * there, so that they need not be reparsed after a restart.
  */
 public class PageDefinitionCache extends AbstractCache<String, PageDefinition> {
     
+    private static final Log log = LogFactory.getLog(PageDefinitionCache.class);
+    
+    private static final int MAX_KEYS = 10000;
+    
     private static PageDefinitionCache instance = new PageDefinitionCache();
     
+    private final Map<String, String> normalizedKeys = new ConcurrentHashMap<>();
+    
+    private volatile boolean revalidate;
+    
+    private volatile long revalidateInterval = 2000;
+    
+    private volatile PageDefinitionStore store;
+    
+    private String diskCacheDirectory;
+    
+    private String diskCacheVersion;
+    
     public static PageDefinitionCache getInstance() {
         return instance;
     }
@@ -41,12 +67,60 @@ public class PageDefinitionCache extends AbstractCache<String, PageDefinition> {
     private PageDefinitionCache() {
     }
     
+    /**
+     * Normalizes a key to the URL of the resource it references. Normalized keys are memoized.
+     *
+     * @param key The key to normalize.
+     * @return The normalized key.
+     */
     private String normalizeKey(String key) {
+        String normalized = normalizedKeys.get(key);
+        
+        if (normalized == null) {
+            try {
+                normalized = WebUtil.getResource(key).getURL().toString();
+            } catch (IOException e) {
+                throw MiscUtil.toUnchecked(e);
+            }
+            
+            if (normalizedKeys.size() >= MAX_KEYS) {
+                normalizedKeys.clear();
+            }
+            
+            normalizedKeys.put(key, normalized);
+        }
+        
+        return normalized;
+    }
+    
+    /**
+     * Returns the last modified time of a resource.
+     *
+     * @param url The URL of the resource.
+     * @return The last modified time, or 0 if it cannot be determined.
+     */
+    private long lastModified(String url) {
         try {
-            return WebUtil.getResource(key).getURL().toString();
-        } catch (IOException e) {
-            throw MiscUtil.toUnchecked(e);
+            return WebUtil.getResource(url).lastModified();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Returns the latest last modified time of the sources imported into a page definition.
+     *
+     * @param pageDefinition The page definition.
+     * @return The latest last modified time, or 0 if there are no imports.
+     */
+    private long lastModifiedImports(PageDefinition pageDefinition) {
+        long lastModified = 0;
+        
+        for (String src : pageDefinition.getImports()) {
+            lastModified = Math.max(lastModified, lastModified(src));
         }
+        
+        return lastModified;
     }
     
     @Override
@@ -54,18 +128,144 @@ public class PageDefinitionCache extends AbstractCache<String, PageDefinition> {
         return super.get(normalizeKey(key));
     }
     
+    @Override
+    public boolean remove(String key) {
+        return super.remove(normalizeKey(key));
+    }
+    
     @Override
     public boolean isCached(String key) {
         return super.isCached(normalizeKey(key));
     }
     
+    /**
+     * If revalidation is enabled, checks whether the source of the page definition, or any source
+     * it imports, has been modified since it was compiled. The check is performed at most once per
+     * revalidation interval for a given page definition.
+     */
+    @Override
+    protected boolean isValid(String url, PageDefinition pageDefinition) {
+        if (!revalidate || pageDefinition == null) {
+            return true;
+        }
+        
+        long now = System.currentTimeMillis();
+        
+        if (now - pageDefinition.getLastChecked() < revalidateInterval) {
+            return true;
+        }
+        
+        pageDefinition.setLastChecked(now);
+        return Math.max(lastModified(url), lastModifiedImports(pageDefinition)) == pageDefinition.getLastModified();
+    }
+    
     @Override
     protected PageDefinition fetch(String url) {
         try {
-            return PageParser.getInstance().parse(url);
+            long lastModified = revalidate ? lastModified(url) : 0;
+            PageDefinitionStore store = this.store;
+            PageDefinition pageDefinition = store == null ? PageParser.getInstance().parse(url) : store.get(url);
+            pageDefinition.setLastModified(revalidate ? Math.max(lastModified, lastModifiedImports(pageDefinition)) : 0);
+            pageDefinition.setLastChecked(System.currentTimeMillis());
+            return pageDefinition;
         } catch (Exception e) {
             throw MiscUtil.toUnchecked(e);
         }
     }
     
+    /**
+     * Returns true if cached page definitions are recompiled when their source is modified.
+     *
+     * @return True if revalidation is enabled.
+     */
+    public boolean isRevalidate() {
+        return revalidate;
+    }
+    
+    /**
+     * Enables or disables recompilation of cached page definitions when their source is modified.
+     * This is intended for development environments.
+     *
+     * @param revalidate True to enable revalidation.
+     */
+    public void setRevalidate(boolean revalidate) {
+        this.revalidate = revalidate;
+    }
+    
+    /**
+     * Returns the minimum interval between checks of a page definition's source for modification.
+     *
+     * @return The revalidation interval, in milliseconds.
+     */
+    public long getRevalidateInterval() {
+        return revalidateInterval;
+    }
+    
+    /**
+     * Sets the minimum interval between checks of a page definition's source for modification.
+     *
+     * @param revalidateInterval The revalidation interval, in milliseconds.
+     */
+    public void setRevalidateInterval(long revalidateInterval) {
+        this.revalidateInterval = revalidateInterval;
+    }
+    
+    /**
+     * Returns the directory in which compiled page definitions are persisted.
+     *
+     * @return The disk cache directory, or null if disabled.
+     */
+    public String getDiskCacheDirectory() {
+        return diskCacheDirectory;
+    }
+    
+    /**
+     * Sets the directory in which compiled page definitions are persisted. A persisted page
+     * definition is used in place of parsing its source as long as neither the source, any source
+     * it imports, nor the disk cache version (see {@link #setDiskCacheVersion}) has changed. The
+     * disk cache is disabled if no version is specified and the framework version cannot be
+     * determined.
+     *
+     * @param diskCacheDirectory The disk cache directory. If empty, the disk cache is disabled.
+     */
+    public void setDiskCacheDirectory(String diskCacheDirectory) {
+        this.diskCacheDirectory = StringUtils.trimToNull(diskCacheDirectory);
+        updateStore();
+    }
+    
+    /**
+     * Returns the version with which persisted page definitions are tagged.
+     *
+     * @return The disk cache version, or null if the framework version is used.
+     */
+    public String getDiskCacheVersion() {
+        return diskCacheVersion;
+    }
+    
+    /**
+     * Sets the version with which persisted page definitions are tagged. A persisted page definition
+     * tagged with a different version is discarded.
+     *
+     * @param diskCacheVersion The disk cache version. If empty, the framework version is used.
+     */
+    public void setDiskCacheVersion(String diskCacheVersion) {
+        this.diskCacheVersion = StringUtils.trimToNull(diskCacheVersion);
+        updateStore();
+    }
+    
+    /**
+     * Creates the store for the current disk cache directory and version, or removes it if the disk
+     * cache is disabled.
+     */
+    private void updateStore() {
+        String version = diskCacheVersion == null ? PageDefinitionStore.getFrameworkVersion() : diskCacheVersion;
+        
+        if (diskCacheDirectory != null && version == null) {
+            log.warn("Framework version is unknown; disk cache disabled.");
+            diskCacheDirectory = null;
+        }
+        
+        store = diskCacheDirectory == null ? null : new PageDefinitionStore(new File(diskCacheDirectory), version);
+    }
+    
 }
@@ -0,0 +1,356 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.page;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.fujion.ancillary.ComponentRegistry;
+import org.fujion.annotation.ComponentDefinition;
+import org.fujion.common.MiscUtil;
+import org.fujion.core.WebUtil;
+import org.fujion.taglib.TagLibrary;
+import org.fujion.taglib.TagLibraryRegistry;
+import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Persists page definitions in a compact binary form within a local directory, so that pages need
+ * not be reparsed after a restart. Each stored page definition is identified by the URL of its
+ * source and is tagged with a version (normally that of the framework) and with a hash of the
+ * content of its source and of every source it imports. A stored page definition whose tags do not
+ * match the current sources or version is discarded and replaced by a freshly parsed one.
+ */
+/*package*/ class PageDefinitionStore {
+    
+    private static final Log log = LogFactory.getLog(PageDefinitionStore.class);
+    
+    private static final int MAGIC = 0x46535042;
+    
+    private static final int FORMAT = 2;
+    
+    private final File directory;
+    
+    private final String version;
+    
+    /**
+     * Returns the framework version.
+     *
+     * @return The framework version, or null if it cannot be determined (as when running from
+     *         unpackaged classes).
+     */
+    /*package*/ static String getFrameworkVersion() {
+        return PageDefinitionStore.class.getPackage().getImplementationVersion();
+    }
+    
+    /**
+     * Creates a store.
+     *
+     * @param directory The directory in which page definitions are stored.
+     * @param version The version with which stored page definitions are tagged.
+     */
+    /*package*/ PageDefinitionStore(File directory, String version) {
+        this.directory = directory;
+        this.version = version;
+        directory.mkdirs();
+    }
+    
+    /**
+     * Returns the page definition for the source at the specified URL, loading it from the store
+     * if a current version is present, or parsing the source and storing the result otherwise.
+     *
+     * @param url The URL of the page source.
+     * @return The page definition.
+     */
+    /*package*/ PageDefinition get(String url) {
+        Resource resource = WebUtil.getResource(url);
+        byte[] content = getContent(resource);
+        String hash = DigestUtils.md5DigestAsHex(content);
+        File file = new File(directory, DigestUtils.md5DigestAsHex(url.getBytes(StandardCharsets.UTF_8)) + ".fspc");
+        PageDefinition pageDefinition = file.exists() ? read(file, hash) : null;
+        
+        if (pageDefinition == null) {
+            String src = resource.getFilename();
+            PageSource source = new PageSource(new ByteArrayInputStream(content),
+                    src == null ? resource.getDescription() : src);
+            pageDefinition = PageParser.getInstance().parse(source);
+            write(file, hash, pageDefinition);
+        }
+        
+        return pageDefinition;
+    }
+    
+    /**
+     * Returns the content of a resource.
+     *
+     * @param resource The resource.
+     * @return The resource's content.
+     */
+    private static byte[] getContent(Resource resource) {
+        try (InputStream is = resource.getInputStream()) {
+            return IOUtils.toByteArray(is);
+        } catch (IOException e) {
+            throw MiscUtil.toUnchecked(e);
+        }
+    }
+    
+    /**
+     * Returns a hash of the current content of the source at the specified URL.
+     *
+     * @param url The URL of the source.
+     * @return The hash of the source content.
+     */
+    private static String getHash(String url) {
+        return DigestUtils.md5DigestAsHex(getContent(WebUtil.getResource(url)));
+    }
+    
+    /**
+     * Reads a stored page definition.
+     *
+     * @param file The file containing the stored page definition.
+     * @param hash The hash of the current source content.
+     * @return The page definition, or null if the stored version is not current or not readable.
+     */
+    private PageDefinition read(File file, String hash) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT || !version.equals(in.readUTF())
+                    || !hash.equals(in.readUTF())) {
+                return null;
+            }
+            
+            PageDefinition pageDefinition = new PageDefinition();
+            int imports = in.readInt();
+            
+            for (int i = 0; i < imports; i++) {
+                String src = in.readUTF();
+                
+                if (!in.readUTF().equals(getHash(src))) {
+                    return null;
+                }
+                
+                pageDefinition.addImport(src);
+            }
+            
+            Reader reader = new Reader(in);
+            pageDefinition.setSource(reader.readString());
+            reader.readElement(pageDefinition.getRootElement());
+            return pageDefinition;
+        } catch (Exception e) {
+            log.warn("Discarding unreadable stored page definition " + file, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Writes a page definition to the store. The file is first written under a temporary name and
+     * then renamed, so that concurrent readers never see a partially written file.
+     *
+     * @param file The file to receive the stored page definition.
+     * @param hash The hash of the source content.
+     * @param pageDefinition The page definition.
+     */
+    private void write(File file, String hash, PageDefinition pageDefinition) {
+        File temp = null;
+        
+        try {
+            temp = File.createTempFile("fspc", null, directory);
+            
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeUTF(version);
+                out.writeUTF(hash);
+                out.writeInt(pageDefinition.getImports().size());
+                
+                for (String src : pageDefinition.getImports()) {
+                    out.writeUTF(src);
+                    out.writeUTF(getHash(src));
+                }
+                
+                Writer writer = new Writer(out);
+                writer.writeString(pageDefinition.getSource());
+                writer.writeElement(pageDefinition.getRootElement());
+            }
+            
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to store page definition " + file, e);
+            
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+    
+    /**
+     * Serializes a tree of page elements. Strings are written once; subsequent occurrences are
+     * written as an index into the strings already written.
+     */
+    private static class Writer {
+        
+        private final DataOutputStream out;
+        
+        private final Map<String, Integer> strings = new HashMap<>();
+        
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+        
+        void writeElement(PageElement element) throws IOException {
+            Map<String, String> attributes = element.getAttributes();
+            out.writeInt(attributes == null ? 0 : attributes.size());
+            
+            if (attributes != null) {
+                for (Entry<String, String> entry : attributes.entrySet()) {
+                    writeString(entry.getKey());
+                    writeString(entry.getValue());
+                }
+            }
+            
+            Map<String, TagLibrary> tagLibraries = element.getTagLibraries();
+            out.writeInt(tagLibraries.size());
+            
+            for (Entry<String, TagLibrary> entry : tagLibraries.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue().getUri());
+            }
+            
+            List<PageElement> children = element.getChildren();
+            out.writeInt(children.size());
+            
+            for (PageElement child : children) {
+                writeString(child.getDefinition().getTag());
+                writeElement(child);
+            }
+        }
+        
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            
+            Integer index = strings.get(value);
+            
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+            
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(-2);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Deserializes a tree of page elements written by {@link Writer}.
+     */
+    private static class Reader {
+        
+        private final DataInputStream in;
+        
+        private final List<String> strings = new ArrayList<>();
+        
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+        
+        void readElement(PageElement element) throws IOException {
+            int count = in.readInt();
+            
+            for (int i = 0; i < count; i++) {
+                element.setAttribute(readString(), readString());
+            }
+            
+            count = in.readInt();
+            
+            for (int i = 0; i < count; i++) {
+                String prefix = readString();
+                String uri = readString();
+                TagLibrary tagLibrary = TagLibraryRegistry.getInstance().get(uri);
+                
+                if (tagLibrary == null) {
+                    throw new IOException("Tag library not found: " + uri);
+                }
+                
+                element.addTagLibrary(prefix, tagLibrary);
+            }
+            
+            count = in.readInt();
+            
+            for (int i = 0; i < count; i++) {
+                String tag = readString();
+                ComponentDefinition def = ComponentRegistry.getInstance().get(tag);
+                
+                if (def == null) {
+                    throw new IOException("Unrecognized tag: " + tag);
+                }
+                
+                readElement(new PageElement(def, element));
+            }
+            
+            if (element.getDefinition() != null) {
+                element.validate();
+            }
+        }
+        
+        String readString() throws IOException {
+            int index = in.readInt();
+            
+            if (index == -1) {
+                return null;
+            }
+            
+            if (index >= 0) {
+                return strings.get(index);
+            }
+            
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+    }
+}
@@ -23,12 +23,15 @@ package org.fujion.page;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.fujion.annotation.ComponentDefinition;
 import org.fujion.annotation.ComponentDefinition.Cardinality;
+import org.fujion.expression.ELEvaluator;
 import org.fujion.taglib.TagLibrary;
 
 /**
@@ -42,15 +45,31 @@ public class PageElement {
     
     private Map<String, String> attributes;
     
+    private Set<String> expressions;
+    
     private Map<String, TagLibrary> tagLibraries;
     
     private List<PageElement> children;
     
     private Map<String, Integer> childCounts;
     
+    private final PageDefinition pageDefinition;
+    
+    /**
+     * Creates the root element of a page definition.
+     *
+     * @param pageDefinition The owning page definition.
+     */
+    /*package*/ PageElement(PageDefinition pageDefinition) {
+        this.definition = null;
+        this.parent = null;
+        this.pageDefinition = pageDefinition;
+    }
+    
     /*package*/ PageElement(ComponentDefinition definition, PageElement parent) {
         this.definition = definition;
         this.parent = parent;
+        this.pageDefinition = null;
         
         if (parent != null) {
             parent.addChild(this);
@@ -76,7 +95,8 @@ public class PageElement {
     }
     
     /**
-     * Sets the value of a named attribute.
+     * Sets the value of a named attribute. Values containing EL expressions are noted here, so that
+     * literal values need not be submitted to the EL evaluator.
      *
      * @param name The attribute name.
      * @param value The new value.
@@ -87,6 +107,26 @@ public class PageElement {
         }
         
         attributes.put(name, value);
+        
+        if (!ELEvaluator.isLiteral(value)) {
+            if (expressions == null) {
+                expressions = new HashSet<>();
+            }
+            
+            expressions.add(name);
+        } else if (expressions != null) {
+            expressions.remove(name);
+        }
+    }
+    
+    /**
+     * Returns true if the value of the named attribute contains an EL expression.
+     *
+     * @param name The attribute name.
+     * @return True if the attribute value must be evaluated.
+     */
+    public boolean isExpression(String name) {
+        return expressions != null && expressions.contains(name);
     }
     
     /**
@@ -138,6 +178,21 @@ public class PageElement {
         return definition;
     }
     
+    /**
+     * Returns the page definition to which this page element belongs.
+     *
+     * @return The owning page definition, or null if none.
+     */
+    /*package*/ PageDefinition getPageDefinition() {
+        PageElement element = this;
+        
+        while (element.parent != null) {
+            element = element.parent;
+        }
+        
+        return element.pageDefinition;
+    }
+    
     /**
      * Returns the parent of this page element.
      *
@@ -185,6 +240,15 @@ public class PageElement {
         tagLibraries.put(prefix, tagLibrary);
     }
     
+    /**
+     * Returns the tag libraries registered directly to this page element.
+     *
+     * @return Map of tag libraries indexed by prefix, never null.
+     */
+    /*package*/ Map<String, TagLibrary> getTagLibraries() {
+        return tagLibraries == null ? Collections.emptyMap() : Collections.unmodifiableMap(tagLibraries);
+    }
+    
     /**
      * Returns a tag library registered to this page element or one of its ancestors.
      *
@@ -24,24 +24,26 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.fujion.ancillary.ComponentRegistry;
 import org.fujion.annotation.Component.ContentHandling;
 import org.fujion.annotation.ComponentDefinition;
+import org.fujion.common.MiscUtil;
 import org.fujion.common.RegistryMap;
 import org.fujion.common.RegistryMap.DuplicateAction;
+import org.fujion.common.XMLUtil;
 import org.fujion.component.Content;
 import org.fujion.core.WebUtil;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.core.io.Resource;
 import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.ProcessingInstruction;
-import org.w3c.dom.Text;
 
 /**
  * Parses a Fujion server page into a page definition.
@@ -120,140 +122,231 @@ public class PageParser implements BeanPostProcessor {
     }
     
     /**
-     * Parse the FSP document referenced by an input stream.
+     * Parse the FSP document referenced by an input stream. The document is read as a stream of
+     * events, so page elements are created as they are encountered without first building an
+     * in-memory representation of the entire document.
      *
      * @param source Source of the FSP.
      * @param parentElement The parent element for the parsing operation.
      */
     protected void parse(PageSource source, PageElement parentElement) {
-        parseNode(source.getDocument(), parentElement);
+        XMLStreamReader reader = source.getReader();
+        
+        try {
+            new StreamParser(reader).parseContent(parentElement, true);
+        } catch (XMLStreamException e) {
+            throw new ParserException(e, "Exception parsing resource '%s'", source.getSource());
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // ignore
+            }
+            
+            source.close();
+        }
     }
-
-    private void parseNode(Node node, PageElement parentElement) {
-        ComponentDefinition def;
-        PageElement childElement;
+    
+    /**
+     * Parses the document content of a single page source. Adjacent character events are
+     * accumulated and processed as a single text node.
+     */
+    private class StreamParser {
         
-        switch (node.getNodeType()) {
-            case Node.ELEMENT_NODE:
-                String tag = normalizeNodeName(node, tagNSMap);
-
-                if (tag == null) {
-                    break;
-                }
-                
-                if (tag.equals("fsp") && node.getParentNode() instanceof Document) {
-                    parseChildren(node, parentElement);
-                    return;
-                }
-
-                def = ComponentRegistry.getInstance().get(tag);
-                
-                if (def == null) {
-                    throw new ParserException("Unrecognized tag  '<%s>'", tag);
-                }
-                
-                childElement = new PageElement(def, parentElement);
-                NamedNodeMap attributes = node.getAttributes();
+        private final XMLStreamReader reader;
+        
+        private final StringBuilder text = new StringBuilder();
+        
+        private Document piFactory;
+        
+        StreamParser(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+        
+        /**
+         * Parses content up to the end of the current element or, if at the document level, to
+         * the end of the document.
+         *
+         * @param parentElement The parent element for the content.
+         * @param isDocument True if parsing at the document level.
+         * @throws XMLStreamException Exception from the underlying reader.
+         */
+        void parseContent(PageElement parentElement, boolean isDocument) throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
                 
-                for (int i = 0; i < attributes.getLength(); i++) {
-                    Node attr = attributes.item(i);
-                    String name = normalizeNodeName(attr, attrNSMap);
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        flushText(parentElement);
+                        parseElement(parentElement, isDocument);
+                        break;
                     
-                    if (name != null) {
-                        childElement.setAttribute(name, attr.getNodeValue());
-                    }
-                }
-                
-                parseChildren(node, childElement);
-                childElement.validate();
-                break;
-            
-            case Node.TEXT_NODE:
-            case Node.CDATA_SECTION_NODE:
-                String value = ((Text) node).getWholeText();
-                
-                if (value.trim().isEmpty()) {
-                    break;
-                }
-                
-                ComponentDefinition parentDef = parentElement.getDefinition();
-                
-                switch (parentDef == null ? ContentHandling.AS_CHILD : parentDef.contentHandling()) {
-                    case ERROR:
-                        throw new ParserException("Text content is not allowed for tag '<%s>'", parentDef.getTag());
-                        
-                    case IGNORE:
+                    case XMLStreamConstants.END_ELEMENT:
+                    case XMLStreamConstants.END_DOCUMENT:
+                        flushText(parentElement);
+                        return;
+                    
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
                         break;
                     
-                    case AS_ATTRIBUTE:
-                        parentElement.setAttribute(CONTENT_ATTR, normalizeText(value));
+                    case XMLStreamConstants.COMMENT:
+                        flushText(parentElement);
                         break;
                     
-                    case AS_CHILD:
-                        def = ComponentRegistry.getInstance().get(Content.class);
-                        childElement = new PageElement(def, parentElement);
-                        childElement.setAttribute(CONTENT_ATTR, normalizeText(value));
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        flushText(parentElement);
+                        parsePI(parentElement);
                         break;
+                    
+                    default:
+                        throw new ParserException("Unrecognized document content type '%s'", event);
                 }
-                
-                break;
+            }
             
-            case Node.DOCUMENT_NODE:
-                parseChildren(node, parentElement);
-                break;
+            flushText(parentElement);
+        }
+        
+        private void parseElement(PageElement parentElement, boolean isDocument) throws XMLStreamException {
+            String tag = normalizeName(reader.getPrefix(), reader.getNamespaceURI(), reader.getLocalName(), tagNSMap);
             
-            case Node.COMMENT_NODE:
-                break;
+            if (tag == null) {
+                skipElement();
+                return;
+            }
+            
+            if (tag.equals("fsp") && isDocument) {
+                parseContent(parentElement, false);
+                return;
+            }
+            
+            ComponentDefinition def = ComponentRegistry.getInstance().get(tag);
             
-            case Node.PROCESSING_INSTRUCTION_NODE:
-                ProcessingInstruction pi = (ProcessingInstruction) node;
-                PIParserBase piParser = piParsers.get(pi.getTarget());
+            if (def == null) {
+                throw new ParserException("Unrecognized tag  '<%s>'", tag);
+            }
+            
+            PageElement childElement = new PageElement(def, parentElement);
+            
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String name = normalizeName(reader.getAttributePrefix(i), reader.getAttributeNamespace(i),
+                    reader.getAttributeLocalName(i), attrNSMap);
                 
-                if (piParser != null) {
-                    piParser.parse(pi, parentElement);
-                } else {
-                    throw new ParserException("Unrecognized processing instruction '%s'", pi.getTarget());
+                if (name != null) {
+                    childElement.setAttribute(name, reader.getAttributeValue(i));
                 }
+            }
+            
+            parseContent(childElement, false);
+            childElement.validate();
+        }
+        
+        /**
+         * Skips the current element and all of its content.
+         *
+         * @throws XMLStreamException Exception from the underlying reader.
+         */
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            
+            while (depth > 0 && reader.hasNext()) {
+                int event = reader.next();
+                depth += event == XMLStreamConstants.START_ELEMENT ? 1 : event == XMLStreamConstants.END_ELEMENT ? -1 : 0;
+            }
+        }
+        
+        /**
+         * Passes the current processing instruction to the parser registered for its target.
+         *
+         * @param parentElement The enclosing page element.
+         */
+        private void parsePI(PageElement parentElement) {
+            String target = reader.getPITarget();
+            PIParserBase piParser = piParsers.get(target);
+            
+            if (piParser == null) {
+                throw new ParserException("Unrecognized processing instruction '%s'", target);
+            }
+            
+            String data = reader.getPIData();
+            piParser.parse(getPIFactory().createProcessingInstruction(target, data == null ? "" : data.trim()),
+                parentElement);
+        }
+        
+        /**
+         * Returns an empty document used only to create the processing instruction nodes expected
+         * by processing instruction parsers.
+         *
+         * @return An empty document.
+         */
+        private Document getPIFactory() {
+            if (piFactory == null) {
+                try {
+                    piFactory = XMLUtil.newDocumentBuilder(false).newDocument();
+                } catch (ParserConfigurationException e) {
+                    throw MiscUtil.toUnchecked(e);
+                }
+            }
+            
+            return piFactory;
+        }
+        
+        private void flushText(PageElement parentElement) {
+            if (text.length() > 0) {
+                String value = text.toString();
+                text.setLength(0);
+                parseText(value, parentElement);
+            }
+        }
+    }
+    
+    private void parseText(String value, PageElement parentElement) {
+        if (value.trim().isEmpty()) {
+            return;
+        }
+        
+        ComponentDefinition parentDef = parentElement.getDefinition();
+        PageElement childElement;
+        
+        switch (parentDef == null ? ContentHandling.AS_CHILD : parentDef.contentHandling()) {
+            case ERROR:
+                throw new ParserException("Text content is not allowed for tag '<%s>'", parentDef.getTag());
                 
+            case IGNORE:
                 break;
             
-            default:
-                throw new ParserException("Unrecognized document content type '%s'", node.getNodeName());
+            case AS_ATTRIBUTE:
+                parentElement.setAttribute(CONTENT_ATTR, normalizeText(value));
+                break;
+            
+            case AS_CHILD:
+                ComponentDefinition def = ComponentRegistry.getInstance().get(Content.class);
+                childElement = new PageElement(def, parentElement);
+                childElement.setAttribute(CONTENT_ATTR, normalizeText(value));
+                break;
         }
     }
     
     /**
-     * Normalizes a namespace-prefixed node name by mapping the namespace's URL to a standard
-     * prefix. If the namespace URL is not known, null is returned. If the node name has no prefix,
-     * the original name is returned.
+     * Normalizes a namespace-prefixed name by mapping the namespace's URL to a standard prefix. If
+     * the namespace URL is not known, null is returned. If the name has no prefix, the local name
+     * is returned.
      *
-     * @param node Node whose name is to be normalized.
+     * @param prefix The namespace prefix (may be null or empty).
+     * @param uri The namespace URL.
+     * @param localName The local name.
      * @param nsMap Namespace URL to standard prefix mapping.
-     * @return The normalized node name. If null, the node name could not be normalized.
+     * @return The normalized name. If null, the name could not be normalized.
      */
-    private String normalizeNodeName(Node node, Map<String, String> nsMap) {
-        String name = node.getNodeName();
-        int i = name.indexOf(":");
-        
-        if (i > 0) {
-            String pfx = name.substring(0, i);
-            name = name.substring(i + 1);
-            String uri = node.lookupNamespaceURI(pfx);
-            pfx = nsMap.get(uri);
-            name = pfx == null ? null : pfx.isEmpty() ? name : pfx + ":" + name;
+    private String normalizeName(String prefix, String uri, String localName, Map<String, String> nsMap) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
         }
         
-        return name;
-    }
-
-    private void parseChildren(Node node, PageElement parentElement) {
-        NodeList children = node.getChildNodes();
-        int childCount = children.getLength();
-        
-        for (int i = 0; i < childCount; i++) {
-            Node childNode = children.item(i);
-            parseNode(childNode, parentElement);
-        }
+        String pfx = nsMap.get(uri);
+        return pfx == null ? null : pfx.isEmpty() ? localName : pfx + ":" + localName;
     }
     
     private String normalizeText(String text) {
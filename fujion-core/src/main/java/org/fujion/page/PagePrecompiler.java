@@ -0,0 +1,197 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.page;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.fujion.common.MiscUtil;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+/**
+ * Compiles Fujion server pages into the page definition cache at application startup, so that the
+ * first request for a page does not incur the cost of parsing it. Pages are located using one or
+ * more comma-delimited resource patterns (for example,
+ * <code>classpath*:web/**&#47;*.fsp,/**&#47;*.fsp</code>) and are compiled in parallel. Any page
+ * that fails to compile is reported at startup. Precompilation is disabled if no patterns are
+ * specified.
+ */
+public class PagePrecompiler implements ApplicationContextAware, ApplicationListener<ContextRefreshedEvent> {
+    
+    private static final Log log = LogFactory.getLog(PagePrecompiler.class);
+    
+    private ApplicationContext applicationContext;
+    
+    private String patterns;
+    
+    private int threads;
+    
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+    
+    /**
+     * Precompiles pages once the owning application context has been fully initialized, at which
+     * point all components and tag libraries have been registered.
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() == applicationContext && !StringUtils.isBlank(patterns)) {
+            precompile(applicationContext);
+        }
+    }
+    
+    /**
+     * Locates all pages matching the configured patterns and compiles them into the page
+     * definition cache.
+     *
+     * @param resolver The resolver used to locate pages.
+     * @return The number of pages that failed to compile.
+     */
+    public int precompile(ResourcePatternResolver resolver) {
+        long start = System.currentTimeMillis();
+        List<Resource> resources = findPages(resolver);
+        AtomicInteger errors = new AtomicInteger();
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        
+        try {
+            pool.submit(() -> resources.parallelStream().forEach(resource -> {
+                if (!compile(resource)) {
+                    errors.incrementAndGet();
+                }
+            })).get();
+        } catch (Exception e) {
+            throw MiscUtil.toUnchecked(e);
+        } finally {
+            pool.shutdown();
+        }
+        
+        long elapsed = System.currentTimeMillis() - start;
+        String message = String.format("Precompiled %d page(s) in %d ms with %d error(s).", resources.size(), elapsed,
+            errors.get());
+        
+        if (errors.get() == 0) {
+            log.info(message);
+        } else {
+            log.error(message);
+        }
+        
+        return errors.get();
+    }
+    
+    /**
+     * Returns all resources matching the configured patterns, excluding duplicates.
+     *
+     * @param resolver The resolver used to locate pages.
+     * @return List of matching resources.
+     */
+    private List<Resource> findPages(ResourcePatternResolver resolver) {
+        Set<Resource> resources = new LinkedHashSet<>();
+        
+        for (String pattern : StringUtils.split(StringUtils.defaultString(patterns), ',')) {
+            pattern = pattern.trim();
+            
+            try {
+                for (Resource resource : resolver.getResources(pattern)) {
+                    if (resource.isReadable()) {
+                        resources.add(resource);
+                    }
+                }
+            } catch (FileNotFoundException e) {
+                // ignore
+            } catch (Exception e) {
+                log.error("Error resolving page pattern " + pattern, e);
+            }
+        }
+        
+        return new ArrayList<>(resources);
+    }
+    
+    /**
+     * Compiles a single page into the page definition cache.
+     *
+     * @param resource The page resource.
+     * @return True if the page compiled successfully.
+     */
+    private boolean compile(Resource resource) {
+        try {
+            PageDefinitionCache.getInstance().get(resource.getURL().toString()).compile();
+            return true;
+        } catch (Exception e) {
+            log.error("Error precompiling page " + resource, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Returns the comma-delimited list of resource patterns used to locate pages.
+     *
+     * @return The resource patterns.
+     */
+    public String getPatterns() {
+        return patterns;
+    }
+    
+    /**
+     * Sets the comma-delimited list of resource patterns used to locate pages.
+     *
+     * @param patterns The resource patterns. If empty, precompilation is disabled.
+     */
+    public void setPatterns(String patterns) {
+        this.patterns = patterns;
+    }
+    
+    /**
+     * Returns the number of threads used for precompilation.
+     *
+     * @return The thread count. If not positive, the number of available processors is used.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Sets the number of threads used for precompilation.
+     *
+     * @param threads The thread count. If not positive, the number of available processors is
+     *            used.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+    
+}
@@ -23,6 +23,9 @@ package org.fujion.page;
 import java.io.IOException;
 import java.io.InputStream;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
 import org.apache.commons.io.IOUtils;
 import org.fujion.common.MiscUtil;
 import org.fujion.common.XMLUtil;
@@ -35,6 +38,14 @@ import org.w3c.dom.Document;
  */
 public class PageSource {
     
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    
+    static {
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+    
     private final String source;
 
     private InputStream stream;
@@ -105,6 +116,34 @@ public class PageSource {
         return document;
     }
 
+    /**
+     * Returns a streaming reader for the FSP. Unlike {@link #getDocument()}, this does not build
+     * an in-memory representation of the entire document. The caller is responsible for calling
+     * {@link #close()} when finished with the reader.
+     *
+     * @return A streaming reader for the FSP.
+     */
+    public XMLStreamReader getReader() {
+        if (stream == null) {
+            throw new IllegalStateException("Page source has already been consumed: " + source);
+        }
+        
+        try {
+            return inputFactory.createXMLStreamReader(stream);
+        } catch (Exception e) {
+            close();
+            throw new ParserException(e, "Exception parsing resource '%s'", source);
+        }
+    }
+    
+    /**
+     * Closes the underlying input stream, if not already closed.
+     */
+    public void close() {
+        IOUtils.closeQuietly(stream);
+        stream = null;
+    }
+    
     /**
      * Returns the source of the FSP.
      *
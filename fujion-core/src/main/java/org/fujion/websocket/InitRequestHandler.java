@@ -20,6 +20,8 @@
  */
 package org.fujion.websocket;
 
+import java.util.List;
+
 import org.fujion.client.ClientRequest;
 import org.fujion.client.Synchronizer;
 import org.fujion.component.Page;
@@ -36,10 +38,13 @@ public class InitRequestHandler implements IRequestHandler {
     public void handleRequest(ClientRequest request) {
         Page page = request.getPage();
         PageDefinition pageDefinition = PageDefinitionCache.getInstance().get(page.getSrc());
-        Synchronizer synchronizer = request.getSession().getSynchronizer();
+        Session session = request.getSession();
+        Synchronizer synchronizer = session.getSynchronizer();
         synchronizer.startQueueing();
+        negotiateWireFormat(request, session, synchronizer);
+        negotiateCompression(request, session);
         Page._init(page, request, synchronizer);
-        Sessions.getInstance().notifyLifecycleListeners(request.getSession(), true);
+        Sessions.getInstance().notifyLifecycleListeners(session, true);
 
         try {
             pageDefinition.materialize(page);
@@ -53,6 +58,37 @@ public class InitRequestHandler implements IRequestHandler {
         }
     }
 
+    /**
+     * Selects the wire format for the session from those the client reports it supports. If other
+     * than the default, the client is notified so that subsequent requests use the same format.
+     *
+     * @param request The initialization request.
+     * @param session The session being initialized.
+     * @param synchronizer The session's synchronizer.
+     */
+    private void negotiateWireFormat(ClientRequest request, Session session, Synchronizer synchronizer) {
+        List<?> supported = request.getParam("wireFormats", List.class);
+        WireFormat wireFormat = WireFormat.negotiate(WebSocketConfiguration.getWireFormat(), supported);
+        session.setWireFormat(wireFormat);
+
+        if (wireFormat != WireFormat.JSON) {
+            synchronizer.invokeClient(null, "fujion.ws.setWireFormat", wireFormat.getName());
+        }
+    }
+
+    /**
+     * Enables server-side compression of large messages if it is configured, the client supports
+     * it, and the web socket has not negotiated protocol-level compression (permessage-deflate).
+     *
+     * @param request The initialization request.
+     * @param session The session being initialized.
+     */
+    private void negotiateCompression(ClientRequest request, Session session) {
+        List<?> supported = request.getParam("compression", List.class);
+        session.setCompressionEnabled(WebSocketConfiguration.getCompressionThreshold() > 0 && supported != null
+                && supported.contains("gzip") && !WebSocketConfiguration.isPerMessageDeflate(session.getSocket()));
+    }
+
     @Override
     public String getRequestType() {
         return "init";
@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.fujion.client.ExecutionContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Executes client requests for a single session on a shared thread pool, so that long-running
+ * request handlers do not occupy the container's web socket threads. Tasks submitted to the same
+ * executor are run one at a time in the order submitted, so that requests targeting a page are never
+ * processed concurrently. After each task, the executor yields its pool thread so that busy pages
+ * cannot starve others.
+ */
+class RequestExecutor implements Executor {
+    
+    private static final Log log = LogFactory.getLog(RequestExecutor.class);
+    
+    private static ExecutorService pool;
+    
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    
+    private boolean active;
+    
+    /**
+     * Creates a request executor if request threads are enabled.
+     *
+     * @return A new request executor, or null if requests are to be processed on the container's
+     *         thread.
+     */
+    static RequestExecutor create() {
+        return WebSocketConfiguration.getRequestThreads() == 0 ? null : new RequestExecutor();
+    }
+    
+    /**
+     * Returns the shared thread pool, creating it if necessary. This pool also runs server-initiated
+     * page tasks when request threads are disabled. A thread count of &lt;= 0 produces a pool that
+     * grows as needed.
+     *
+     * @return The shared thread pool.
+     */
+    static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            int threads = WebSocketConfiguration.getRequestThreads();
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fujion-request-");
+            threadFactory.setDaemon(true);
+            pool = threads <= 0 ? Executors.newCachedThreadPool(threadFactory)
+                    : Executors.newFixedThreadPool(threads, threadFactory);
+        }
+        
+        return pool;
+    }
+    
+    private RequestExecutor() {
+    }
+    
+    /**
+     * Queues a task for execution. The task will run after all previously queued tasks complete.
+     *
+     * @param task The task to execute.
+     */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            
+            if (active) {
+                return;
+            }
+            
+            active = true;
+        }
+        
+        getPool().execute(this::runNext);
+    }
+    
+    /**
+     * Runs the next queued task on the current pool thread, then reschedules itself if more tasks
+     * remain. The execution context is destroyed after each task so that no state leaks to the
+     * next task run by the pool thread.
+     */
+    private void runNext() {
+        Runnable task;
+        
+        synchronized (tasks) {
+            task = tasks.poll();
+        }
+        
+        try {
+            task.run();
+        } catch (Throwable e) {
+            log.error("Error executing client request.", e);
+        } finally {
+            ExecutionContext.destroy();
+        }
+        
+        synchronized (tasks) {
+            if (tasks.isEmpty()) {
+                active = false;
+                return;
+            }
+        }
+        
+        getPool().execute(this::runNext);
+    }
+}
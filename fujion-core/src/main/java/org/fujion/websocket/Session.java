@@ -20,9 +20,13 @@
  */
 package org.fujion.websocket;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.ServletContext;
 
@@ -30,6 +34,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.fujion.client.ClientInvocation;
 import org.fujion.client.ClientRequest;
+import org.fujion.client.ExecutionContext;
 import org.fujion.client.Synchronizer;
 import org.fujion.component.Page;
 import org.fujion.page.PageRegistry;
@@ -60,6 +65,20 @@ public class Session {
 
     private long lastActivity;
 
+    private volatile WireFormat wireFormat = WireFormat.JSON;
+
+    private volatile boolean compressionEnabled;
+
+    private final SessionStatistics statistics = new SessionStatistics();
+
+    private final SessionSender sender = new SessionSender(this);
+
+    private final RequestExecutor requestExecutor = RequestExecutor.create();
+
+    private final ReentrantLock executionLock = new ReentrantLock();
+
+    private final List<Runnable> pushTasks = new ArrayList<>();
+
     private Page page;
 
     /**
@@ -78,20 +97,33 @@ public class Session {
     }
 
     /**
-     * Destroy the session. This destroys the associated page.
+     * Destroy the session. This destroys the associated page. The execution lock is held while the
+     * page is destroyed, so that destruction never overlaps a client request or server-initiated
+     * task running on another thread.
      */
     protected void destroy() {
-        if (page != null) {
-            try {
-                synchronizer.startQueueing();
-                page.destroy();
-                socket.getAttributes().remove(ATTR_SESSION);
-            } finally {
-                page = null;
+        if (log.isDebugEnabled()) {
+            log.debug("Session " + getId() + (page == null ? "" : " (" + page.getSrc() + ")") + " closed: " + statistics);
+        }
+
+        executionLock.lock();
+
+        try {
+            if (page != null) {
+                try {
+                    synchronizer.startQueueing();
+                    page.destroy();
+                    socket.getAttributes().remove(ATTR_SESSION);
+                } finally {
+                    page = null;
+                }
             }
+        } finally {
+            executionLock.unlock();
         }
 
         notifySessionListeners(EventType.DESTROY, null);
+        sender.close();
     }
 
     /**
@@ -128,6 +160,148 @@ public class Session {
         this.lastActivity = System.currentTimeMillis();
     }
 
+    /**
+     * Returns the wire format used to encode messages exchanged with the client.
+     *
+     * @return The wire format.
+     */
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Sets the wire format used to encode messages exchanged with the client. This is normally
+     * negotiated when the session is initialized.
+     *
+     * @param wireFormat The wire format.
+     */
+    protected void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
+    /**
+     * Returns true if large outbound messages may be compressed by the server. This is enabled
+     * during session initialization if the client supports it and compression is not already being
+     * performed by the web socket protocol.
+     *
+     * @return True if server-side compression is enabled.
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Enables or disables server-side compression of large outbound messages.
+     *
+     * @param compressionEnabled True to enable server-side compression.
+     */
+    protected void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Returns the message traffic statistics for the session.
+     *
+     * @return The session statistics.
+     */
+    public SessionStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the sender responsible for transmitting messages to the client.
+     *
+     * @return The session's sender.
+     */
+    SessionSender getSender() {
+        return sender;
+    }
+
+    /**
+     * Returns the executor that processes client requests for this session.
+     *
+     * @return The request executor, or null if requests are processed on the container's thread.
+     */
+    RequestExecutor getRequestExecutor() {
+        return requestExecutor;
+    }
+
+    /**
+     * Returns the lock that must be held while executing within this session's page. This ensures
+     * that client requests and server-initiated tasks are never processed concurrently.
+     *
+     * @return The execution lock.
+     */
+    ReentrantLock getExecutionLock() {
+        return executionLock;
+    }
+
+    /**
+     * Runs a task in the execution context of this session's page without waiting for a client
+     * request. This may be called from any thread. The task is executed asynchronously, after any
+     * pending client requests. Tasks submitted before the page is flushed are run together in a
+     * single execution cycle, followed by any queued events, and all resulting client invocations
+     * are sent as a single message. This makes it efficient to push many background updates (e.g.,
+     * from a message bus) to the client.
+     *
+     * @param task The task to run.
+     */
+    public void runOnPage(Runnable task) {
+        synchronized (pushTasks) {
+            pushTasks.add(task);
+
+            if (pushTasks.size() > 1) {
+                return;
+            }
+        }
+
+        Executor executor = requestExecutor == null ? RequestExecutor.getPool() : requestExecutor;
+        executor.execute(this::flushPushTasks);
+    }
+
+    /**
+     * Runs all pending server-initiated tasks within the page's execution context, then processes
+     * the page's event queue.
+     */
+    private void flushPushTasks() {
+        executionLock.lock();
+
+        try {
+            List<Runnable> tasks;
+
+            synchronized (pushTasks) {
+                tasks = new ArrayList<>(pushTasks);
+                pushTasks.clear();
+            }
+
+            Page page = this.page;
+
+            if (page == null || page.isDead()) {
+                return;
+            }
+
+            ExecutionContext.invoke(page.getId(), () -> {
+                synchronizer.startQueueing();
+
+                try {
+                    for (Runnable task : tasks) {
+                        try {
+                            task.run();
+                        } catch (Exception e) {
+                            log.error("Error executing task for page " + page.getId(), e);
+                        }
+                    }
+
+                    page.getEventQueue().processAll();
+                } finally {
+                    synchronizer.stopQueueing();
+                }
+            });
+        } finally {
+            executionLock.unlock();
+        }
+    }
+
     /**
      * Returns the servlet context associated with the session.
      *
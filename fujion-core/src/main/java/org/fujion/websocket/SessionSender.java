@@ -0,0 +1,302 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Sends messages to the client of a single session. In synchronous mode (the default), messages
+ * are sent on the calling thread. In asynchronous mode, messages are placed on a bounded queue that
+ * is drained by a writer thread, so that a slow client cannot stall the thread that produced the
+ * message. In either mode, writes to the underlying web socket are serialized.
+ * <p>
+ * As with Spring's {@code ConcurrentWebSocketSessionDecorator}, the send limits apply only to the
+ * backlog of messages waiting behind the one being sent. A message is always accepted when the
+ * queue is empty, however large it is, and the message being sent does not count against the
+ * buffer size limit.
+ */
+class SessionSender {
+    
+    private static final Log log = LogFactory.getLog(SessionSender.class);
+    
+    private static final ExecutorService writers;
+    
+    static {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fujion-writer-");
+        threadFactory.setDaemon(true);
+        writers = Executors.newCachedThreadPool(threadFactory);
+    }
+    
+    /**
+     * A message awaiting transmission.
+     */
+    private static class PendingMessage {
+        
+        private WebSocketMessage<?> message;
+        
+        private int size;
+        
+        PendingMessage(WebSocketMessage<?> message, int size) {
+            this.message = message;
+            this.size = size;
+        }
+    }
+    
+    private final Session session;
+    
+    private final Deque<PendingMessage> queue = new ArrayDeque<>();
+    
+    private long queuedBytes;
+    
+    private long sendStartTime;
+    
+    private boolean draining;
+    
+    private boolean closed;
+    
+    SessionSender(Session session) {
+        this.session = session;
+    }
+    
+    /**
+     * Sends a message to the client, or queues it for transmission if asynchronous sending is
+     * enabled.
+     *
+     * @param message The message to send.
+     * @param size The size of the message payload in bytes.
+     * @throws Exception Exception on sending the message synchronously.
+     */
+    void send(WebSocketMessage<?> message, int size) throws Exception {
+        if (!WebSocketConfiguration.isAsyncSend()) {
+            write(message, size);
+            return;
+        }
+        
+        boolean schedule;
+        
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            
+            boolean sizeOverflow = !queue.isEmpty() && isSizeOverflow(size);
+            
+            if (sizeOverflow || (!queue.isEmpty() && isTimeOverflow())) {
+                switch (WebSocketConfiguration.getSendOverflowPolicy()) {
+                    case DROP:
+                        session.getStatistics().recordDropped();
+                        log.warn("Send limits exceeded for session " + session.getId() + "; message dropped.");
+                        return;
+                    
+                    case COALESCE:
+                        if (sizeOverflow) {
+                            disconnect();
+                            return;
+                        }
+                        
+                        if (coalesce(message, size)) {
+                            return;
+                        }
+                        
+                        break;
+                    
+                    default:
+                        disconnect();
+                        return;
+                }
+            }
+            
+            queue.add(new PendingMessage(message, size));
+            queuedBytes += size;
+            session.getStatistics().recordQueueDepth(queue.size());
+            schedule = !draining;
+            draining = true;
+        }
+        
+        if (schedule) {
+            writers.execute(this::drain);
+        }
+    }
+    
+    /**
+     * Returns true if queuing a message of the specified size would cause the messages waiting to
+     * be sent to exceed the buffer size limit.
+     *
+     * @param size Size of the message to be queued.
+     * @return True if the buffer size limit would be exceeded.
+     */
+    private boolean isSizeOverflow(int size) {
+        return queuedBytes + size > WebSocketConfiguration.getSendBufferSizeLimit();
+    }
+    
+    /**
+     * Returns true if the message currently being sent has exceeded the send time limit.
+     *
+     * @return True if the send time limit has been exceeded.
+     */
+    private boolean isTimeOverflow() {
+        long timeLimit = WebSocketConfiguration.getSendTimeLimit();
+        return timeLimit > 0 && sendStartTime > 0 && System.currentTimeMillis() - sendStartTime > timeLimit;
+    }
+    
+    /**
+     * Merges a text message into the last queued message, if possible. Merging is not possible if
+     * nothing is queued, if either message is binary (as with the CBOR wire format or server-side
+     * compression), or if the merged message would exceed the buffer size limit.
+     *
+     * @param message The message to merge.
+     * @param size The size of the message payload in bytes.
+     * @return True if the message was merged.
+     */
+    private boolean coalesce(WebSocketMessage<?> message, int size) {
+        PendingMessage last = queue.peekLast();
+        
+        if (last == null || !(last.message instanceof TextMessage) || !(message instanceof TextMessage)
+                || isSizeOverflow(size + 1)) {
+            return false;
+        }
+        
+        String payload1 = ((TextMessage) last.message).getPayload();
+        String payload2 = ((TextMessage) message).getPayload();
+        StringBuilder sb = new StringBuilder(payload1.length() + payload2.length() + 3).append('[');
+        appendElements(sb, payload1).append(',');
+        appendElements(sb, payload2).append(']');
+        last.message = new TextMessage(sb);
+        last.size += size + 1;
+        queuedBytes += size + 1;
+        session.getStatistics().recordCoalesced();
+        return true;
+    }
+    
+    /**
+     * Appends the invocations contained in a json payload, which may be either a single invocation
+     * or an array of invocations.
+     *
+     * @param sb The string builder.
+     * @param payload The json payload.
+     * @return The string builder.
+     */
+    private static StringBuilder appendElements(StringBuilder sb, String payload) {
+        return payload.startsWith("[") ? sb.append(payload, 1, payload.length() - 1) : sb.append(payload);
+    }
+    
+    /**
+     * Drains the queue on a writer thread.
+     */
+    private void drain() {
+        while (true) {
+            PendingMessage pending;
+            
+            synchronized (queue) {
+                pending = queue.poll();
+                
+                if (pending == null || closed) {
+                    draining = false;
+                    sendStartTime = 0;
+                    return;
+                }
+                
+                queuedBytes -= pending.size;
+                sendStartTime = System.currentTimeMillis();
+            }
+            
+            try {
+                write(pending.message, pending.size);
+            } catch (Exception e) {
+                log.error("Error sending message to session " + session.getId(), e);
+            } finally {
+                synchronized (queue) {
+                    if (!closed) {
+                        session.getStatistics().recordQueueDepth(queue.size());
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of bytes waiting to be sent, excluding any message being sent.
+     *
+     * @return The number of queued bytes.
+     */
+    /*package*/ long getQueuedBytes() {
+        synchronized (queue) {
+            return queuedBytes;
+        }
+    }
+    
+    /**
+     * Writes a message to the web socket.
+     *
+     * @param message The message to write.
+     * @param size The size of the message payload in bytes.
+     * @throws Exception Exception on writing the message.
+     */
+    private void write(WebSocketMessage<?> message, int size) throws Exception {
+        WebSocketSession socket = session.getSocket();
+        
+        synchronized (socket) {
+            socket.sendMessage(message);
+        }
+        
+        session.getStatistics().recordSent(size);
+    }
+    
+    /**
+     * Closes the session because it cannot keep up with outbound messages. Must be called while
+     * holding the queue lock.
+     */
+    private void disconnect() {
+        log.warn("Send limits exceeded for session " + session.getId() + "; closing session.");
+        close();
+        
+        writers.execute(() -> {
+            try {
+                session.getSocket().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                log.error("Error closing session " + session.getId(), e);
+            }
+        });
+    }
+    
+    /**
+     * Discards any queued messages and prevents further messages from being queued.
+     */
+    void close() {
+        synchronized (queue) {
+            closed = true;
+            queue.clear();
+            queuedBytes = 0;
+            session.getStatistics().recordQueueDepth(0);
+        }
+    }
+}
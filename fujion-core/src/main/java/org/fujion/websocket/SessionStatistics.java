@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks message traffic for a single session. Sizes are reported in bytes as transmitted (i.e.,
+ * after any server-side compression, but before any protocol-level compression such as
+ * permessage-deflate).
+ */
+public class SessionStatistics {
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private final AtomicLong messagesSent = new AtomicLong();
+
+    private final AtomicLong messagesReceived = new AtomicLong();
+
+    private final AtomicLong largestMessageSent = new AtomicLong();
+
+    private final AtomicLong largestMessageReceived = new AtomicLong();
+
+    private final AtomicLong sendQueueDepth = new AtomicLong();
+
+    private final AtomicLong maxSendQueueDepth = new AtomicLong();
+
+    private final AtomicLong messagesDropped = new AtomicLong();
+
+    private final AtomicLong messagesCoalesced = new AtomicLong();
+
+    /**
+     * Records an outbound message.
+     *
+     * @param bytes Size of the message in bytes.
+     */
+    protected void recordSent(long bytes) {
+        record(bytes, bytesSent, messagesSent, largestMessageSent);
+    }
+
+    /**
+     * Records an inbound message.
+     *
+     * @param bytes Size of the message in bytes.
+     */
+    protected void recordReceived(long bytes) {
+        record(bytes, bytesReceived, messagesReceived, largestMessageReceived);
+    }
+
+    /**
+     * Records the current depth of the outbound message queue.
+     *
+     * @param depth Number of messages awaiting transmission.
+     */
+    protected void recordQueueDepth(long depth) {
+        sendQueueDepth.set(depth);
+        maxSendQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Records an outbound message that was discarded because the send buffer limit was exceeded.
+     */
+    protected void recordDropped() {
+        messagesDropped.incrementAndGet();
+    }
+
+    /**
+     * Records an outbound message that was merged into a message already awaiting transmission.
+     */
+    protected void recordCoalesced() {
+        messagesCoalesced.incrementAndGet();
+    }
+
+    private void record(long bytes, AtomicLong total, AtomicLong count, AtomicLong largest) {
+        total.addAndGet(bytes);
+        count.incrementAndGet();
+        largest.accumulateAndGet(bytes, Math::max);
+    }
+
+    /**
+     * Returns the total number of bytes sent to the client.
+     *
+     * @return Total bytes sent.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the total number of bytes received from the client.
+     *
+     * @return Total bytes received.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Returns the number of messages sent to the client.
+     *
+     * @return Number of messages sent.
+     */
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    /**
+     * Returns the number of messages received from the client.
+     *
+     * @return Number of messages received.
+     */
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    /**
+     * Returns the size of the largest message sent to the client.
+     *
+     * @return Size of the largest message sent, in bytes.
+     */
+    public long getLargestMessageSent() {
+        return largestMessageSent.get();
+    }
+
+    /**
+     * Returns the size of the largest message received from the client.
+     *
+     * @return Size of the largest message received, in bytes.
+     */
+    public long getLargestMessageReceived() {
+        return largestMessageReceived.get();
+    }
+
+    /**
+     * Returns the number of outbound messages currently awaiting transmission. This is always zero
+     * when asynchronous sending is disabled.
+     *
+     * @return Current depth of the outbound message queue.
+     */
+    public long getSendQueueDepth() {
+        return sendQueueDepth.get();
+    }
+
+    /**
+     * Returns the largest number of outbound messages that have awaited transmission at one time.
+     *
+     * @return Maximum depth of the outbound message queue.
+     */
+    public long getMaxSendQueueDepth() {
+        return maxSendQueueDepth.get();
+    }
+
+    /**
+     * Returns the number of outbound messages discarded because the send buffer limit was
+     * exceeded.
+     *
+     * @return Number of messages dropped.
+     */
+    public long getMessagesDropped() {
+        return messagesDropped.get();
+    }
+
+    /**
+     * Returns the number of outbound messages merged into a message already awaiting transmission.
+     *
+     * @return Number of messages coalesced.
+     */
+    public long getMessagesCoalesced() {
+        return messagesCoalesced.get();
+    }
+
+    @Override
+    public String toString() {
+        return "sent=" + getMessagesSent() + " messages/" + getBytesSent() + " bytes (largest " + getLargestMessageSent()
+                + "), received=" + getMessagesReceived() + " messages/" + getBytesReceived() + " bytes (largest "
+                + getLargestMessageReceived() + "), max queue depth=" + getMaxSendQueueDepth() + ", dropped="
+                + getMessagesDropped() + ", coalesced=" + getMessagesCoalesced();
+    }
+}
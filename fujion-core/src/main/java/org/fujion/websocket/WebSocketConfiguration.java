@@ -20,13 +20,21 @@
  */
 package org.fujion.websocket;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
 /**
@@ -38,6 +46,66 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
     
     private static long keepaliveInterval;
 
+    private static WireFormat wireFormat = WireFormat.JSON;
+
+    private static int compressionThreshold;
+
+    private static boolean asyncSend;
+
+    private static long sendBufferSizeLimit;
+
+    private static long sendTimeLimit;
+
+    private static int requestThreads;
+
+    private static int eventQueueCapacity;
+
+    private static OverflowPolicy sendOverflowPolicy = OverflowPolicy.DISCONNECT;
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    @Value("${org.fujion.websocket.perMessageDeflate}")
+    private boolean perMessageDeflate;
+
+    /**
+     * Action to take when an asynchronous send exceeds the buffer size or time limits.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the message being sent.
+         */
+        DROP,
+        /**
+         * When the send time limit is exceeded, merge the message into the last queued message, so
+         * that the client receives fewer, larger messages once it catches up. Only text messages
+         * (i.e., the JSON wire format without server-side compression) can be merged. A message
+         * that cannot be merged is queued. Merging does not reduce the number of bytes queued, so
+         * when the buffer size limit would be exceeded the session is closed, as for
+         * {@link #DISCONNECT}.
+         */
+        COALESCE,
+        /**
+         * Close the session.
+         */
+        DISCONNECT
+    }
+
+    /**
+     * Handshake handler that declines the permessage-deflate extension.
+     */
+    private static class NoDeflateHandshakeHandler extends DefaultHandshakeHandler {
+
+        @Override
+        protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                     List<WebSocketExtension> requestedExtensions,
+                                                                     List<WebSocketExtension> supportedExtensions) {
+            List<WebSocketExtension> extensions = new ArrayList<>(
+                    super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions));
+            extensions.removeIf(extension -> PERMESSAGE_DEFLATE.equals(extension.getName()));
+            return extensions;
+        }
+    }
+
     @Autowired
     private WebSocketHandler fujion_WebSocketHandler;
 
@@ -51,15 +119,125 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
         return keepaliveInterval;
     }
     
+    /**
+     * Returns the preferred wire format. This format will be used for sessions whose client
+     * supports it. Otherwise, the default JSON format is used.
+     *
+     * @return The preferred wire format.
+     */
+    public static WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Returns the minimum size, in bytes, of an outbound message that will be compressed by the
+     * server. Compression is only performed for clients that support it and only when the
+     * permessage-deflate extension is not in effect. A value of &lt;= 0 disables this feature.
+     *
+     * @return The compression threshold.
+     */
+    public static int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Returns true if outbound messages are queued and sent by a writer thread rather than on the
+     * thread that produced them.
+     *
+     * @return True if asynchronous sending is enabled.
+     */
+    public static boolean isAsyncSend() {
+        return asyncSend;
+    }
+
+    /**
+     * Returns the maximum number of bytes that may be queued for asynchronous sending to a single
+     * session before the overflow policy is applied. The message being sent does not count against
+     * this limit, and a message is always accepted when nothing else is queued.
+     *
+     * @return The send buffer size limit.
+     */
+    public static long getSendBufferSizeLimit() {
+        return sendBufferSizeLimit;
+    }
+
+    /**
+     * Returns the maximum time, in milliseconds, that an asynchronous send may take before the
+     * overflow policy is applied to subsequent messages. A value of &lt;= 0 disables this limit.
+     *
+     * @return The send time limit.
+     */
+    public static long getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    /**
+     * Returns the action to take when an asynchronous send exceeds the buffer size or time limits.
+     *
+     * @return The overflow policy.
+     */
+    public static OverflowPolicy getSendOverflowPolicy() {
+        return sendOverflowPolicy;
+    }
+
+    /**
+     * Returns the number of pool threads used to process client requests. A value of 0 means that
+     * requests are processed on the container's web socket thread. A negative value means that the
+     * pool grows as needed. Regardless of pool size, requests for a given page are processed one
+     * at a time in the order received.
+     *
+     * @return The number of request threads.
+     */
+    public static int getRequestThreads() {
+        return requestThreads;
+    }
+
+    /**
+     * Returns the maximum number of events that may be posted to a page's event queue before they
+     * are delivered. Posting an event to a full queue throws an exception. A value of &lt;= 0 means
+     * the queue is unbounded.
+     *
+     * @return The event queue capacity.
+     */
+    public static int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    /**
+     * Returns true if the web socket has negotiated the permessage-deflate extension.
+     *
+     * @param socket The web socket.
+     * @return True if permessage-deflate is in effect.
+     */
+    public static boolean isPerMessageDeflate(WebSocketSession socket) {
+        List<WebSocketExtension> extensions = socket.getExtensions();
+
+        if (extensions != null) {
+            for (WebSocketExtension extension : extensions) {
+                if (PERMESSAGE_DEFLATE.equals(extension.getName())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Register the web socket handler and add a handshake interceptor to copy attributes from the
-     * http session to the web socket.
+     * http session to the web socket. If permessage-deflate is disabled, a handshake handler that
+     * declines that extension is also registered.
      *
      * @see org.springframework.web.socket.config.annotation.WebSocketConfigurer#registerWebSocketHandlers(org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry)
      */
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(fujion_WebSocketHandler, "/ws/**").addInterceptors(new HttpSessionHandshakeInterceptor());
+        WebSocketHandlerRegistration registration = registry.addHandler(fujion_WebSocketHandler, "/ws/**")
+                .addInterceptors(new HttpSessionHandshakeInterceptor());
+
+        if (!perMessageDeflate) {
+            registration.setHandshakeHandler(new NoDeflateHandshakeHandler());
+        }
     }
     
     /**
@@ -72,4 +250,93 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
     private void setKeepaliveInterval(long value) {
         keepaliveInterval = value;
     }
+
+    /**
+     * Sets the preferred wire format.
+     *
+     * @param value The name of the preferred wire format (e.g., "json" or "cbor").
+     */
+    @Value("${org.fujion.websocket.wireFormat}")
+    private void setWireFormat(String value) {
+        WireFormat format = WireFormat.fromName(value);
+        
+        if (format == null) {
+            throw new IllegalArgumentException("Unknown wire format: " + value);
+        }
+        
+        wireFormat = format;
+    }
+
+    /**
+     * Sets the minimum size, in bytes, of an outbound message that will be compressed by the
+     * server.
+     *
+     * @param value The compression threshold. A value of &lt;= 0 disables this feature.
+     */
+    @Value("${org.fujion.websocket.compressionThreshold}")
+    private void setCompressionThreshold(int value) {
+        compressionThreshold = value;
+    }
+
+    /**
+     * Enables or disables asynchronous sending of outbound messages.
+     *
+     * @param value True to enable asynchronous sending.
+     */
+    @Value("${org.fujion.websocket.asyncSend}")
+    /*package*/ void setAsyncSend(boolean value) {
+        asyncSend = value;
+    }
+
+    /**
+     * Sets the maximum number of bytes that may be queued for asynchronous sending to a single
+     * session.
+     *
+     * @param value The send buffer size limit.
+     */
+    @Value("${org.fujion.websocket.sendBufferSizeLimit}")
+    /*package*/ void setSendBufferSizeLimit(long value) {
+        sendBufferSizeLimit = value;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, that an asynchronous send may take.
+     *
+     * @param value The send time limit. A value of &lt;= 0 disables this limit.
+     */
+    @Value("${org.fujion.websocket.sendTimeLimit}")
+    /*package*/ void setSendTimeLimit(long value) {
+        sendTimeLimit = value;
+    }
+
+    /**
+     * Sets the action to take when an asynchronous send exceeds the buffer size or time limits.
+     *
+     * @param value The name of the overflow policy (drop, coalesce, or disconnect).
+     */
+    @Value("${org.fujion.websocket.sendOverflowPolicy}")
+    /*package*/ void setSendOverflowPolicy(String value) {
+        sendOverflowPolicy = OverflowPolicy.valueOf(value.trim().toUpperCase());
+    }
+
+    /**
+     * Sets the number of pool threads used to process client requests.
+     *
+     * @param value The number of request threads. A value of 0 processes requests on the
+     *            container's thread; a negative value produces a pool that grows as needed.
+     */
+    @Value("${org.fujion.websocket.requestThreads}")
+    /*package*/ void setRequestThreads(int value) {
+        requestThreads = value;
+    }
+
+    /**
+     * Sets the maximum number of events that may be posted to a page's event queue.
+     *
+     * @param value The event queue capacity. A value of &lt;= 0 means the queue is unbounded.
+     */
+    @Value("${org.fujion.websocket.eventQueueCapacity}")
+    /*package*/ void setEventQueueCapacity(int value) {
+        eventQueueCapacity = value;
+    }
 }
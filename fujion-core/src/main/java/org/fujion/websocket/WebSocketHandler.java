@@ -21,16 +21,24 @@
 package org.fujion.websocket;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletContext;
 
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.logging.Log;
@@ -38,6 +46,7 @@ import org.apache.commons.logging.LogFactory;
 import org.fujion.client.ClientInvocation;
 import org.fujion.client.ClientRequest;
 import org.fujion.client.ExecutionContext;
+import org.fujion.client.Synchronizer;
 import org.fujion.common.MiscUtil;
 import org.fujion.core.WebUtil;
 import org.springframework.beans.BeansException;
@@ -46,12 +55,12 @@ import org.springframework.web.context.ServletContextAware;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 
 /**
  * Handler for all web socket communications.
@@ -64,11 +73,26 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
 
     private static final Map<String, IRequestHandler> handlers = new HashMap<>();
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * Output buffers retained beyond this capacity are discarded after use.
+     */
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+    private static final ThreadLocal<StringBuilderWriter> textBuffers = new ThreadLocal<StringBuilderWriter>() {
 
-    private static final ObjectReader reader = mapper.readerFor(Map.class);
+        @Override
+        protected StringBuilderWriter initialValue() {
+            return new StringBuilderWriter(1024);
+        }
+    };
+
+    private static final ThreadLocal<ByteArrayBuilder> binaryBuffers = new ThreadLocal<ByteArrayBuilder>() {
 
-    private static final ObjectWriter writer = mapper.writerFor(Map.class);
+        @Override
+        protected ByteArrayBuilder initialValue() {
+            return new ByteArrayBuilder(1024);
+        }
+    };
 
     private static final Sessions sessions = Sessions.getInstance();
 
@@ -90,23 +114,93 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
     }
 
     /**
-     * Sends a json payload to the client via the web socket session.
+     * Sends a serialized payload to the client via the web socket session. If the payload exceeds
+     * the compression threshold and the session supports it, the payload is compressed first. The
+     * message is then handed off to the session's sender, which may transmit it asynchronously.
      *
      * @param socket The web socket session. If null, the session is derived from the current
      *            execution context.
-     * @param json The json payload.
+     * @param message The message containing the serialized payload.
      */
-    private static void sendData(WebSocketSession socket, String json) {
+    private static void sendData(WebSocketSession socket, WebSocketMessage<?> message) {
         try {
             Session session = resolveSession(socket);
-            socket = socket == null ? session.getSocket() : socket;
-            socket.sendMessage(new TextMessage(json));
+            int size = sizeOf(message);
+            int threshold = WebSocketConfiguration.getCompressionThreshold();
+
+            if (threshold > 0 && size >= threshold && session.isCompressionEnabled()) {
+                message = compress(message);
+                size = message.getPayloadLength();
+            }
+
+            session.getSender().send(message, size);
             session.updateLastActivity();
         } catch (Exception e) {
             log.error(e);
         }
     }
 
+    /**
+     * Compresses a message payload using gzip. The result is always a binary message.
+     *
+     * @param message The message to compress.
+     * @return A binary message containing the compressed payload.
+     * @throws IOException IO exception.
+     */
+    private static BinaryMessage compress(WebSocketMessage<?> message) throws IOException {
+        ByteArrayBuilder buffer = new ByteArrayBuilder();
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            if (message instanceof TextMessage) {
+                Writer writer = new OutputStreamWriter(gzip, StandardCharsets.UTF_8);
+                writer.write(((TextMessage) message).getPayload());
+                writer.flush();
+            } else {
+                ByteBuffer payload = ((BinaryMessage) message).getPayload();
+                gzip.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+            }
+        }
+
+        return new BinaryMessage(buffer.toByteArray());
+    }
+
+    /**
+     * Returns the size of a message payload in bytes. For text messages, this is computed from the
+     * UTF-8 encoded length without actually encoding the payload.
+     *
+     * @param message The message.
+     * @return The payload size in bytes.
+     */
+    private static int sizeOf(WebSocketMessage<?> message) {
+        return message instanceof TextMessage ? utf8Length(((TextMessage) message).getPayload())
+                : message.getPayloadLength();
+    }
+
+    /**
+     * Returns the number of bytes required to encode text as UTF-8.
+     *
+     * @param text The text.
+     * @return The UTF-8 encoded length.
+     */
+    private static int utf8Length(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (c >= 0x80) {
+                bytes += c < 0x800 ? 1 : 2;
+
+                if (Character.isHighSurrogate(c)) {
+                    i++;
+                }
+            }
+        }
+
+        return bytes;
+    }
+
     /**
      * Sends a client invocation request to the client via the web socket session derived from the
      * current execution context.
@@ -126,8 +220,8 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
      */
     public static void send(WebSocketSession socket, ClientInvocation invocation) {
         try {
-            String json = writer.writeValueAsString(invocation.toMap());
-            sendData(socket, json);
+            WireFormat format = resolveSession(socket).getWireFormat();
+            sendData(socket, serialize(format, invocation, null));
         } catch (Exception e) {
             log.error(e);
             throw MiscUtil.toUnchecked(e);
@@ -152,26 +246,110 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
      * @param invocations The client invocation requests.
      */
     public static void send(WebSocketSession socket, Iterable<ClientInvocation> invocations) {
-        StringBuilder sb = null;
         Session session = resolveSession(socket);
         
         try {
-            for (ClientInvocation invocation : invocations) {
-                sb = sb == null ? new StringBuilder() : sb;
-                String json = writer.writeValueAsString(invocation.toMap());
-                sb.append(sb.length() == 0 ? "[" : ",").append(json);
-                session.notifySessionListeners(invocation);
-            }
+            WebSocketMessage<?> message = serialize(session.getWireFormat(), null, invocations);
+
+            if (message != null) {
+                for (ClientInvocation invocation : invocations) {
+                    session.notifySessionListeners(invocation);
+                }
 
-            if (sb != null) {
-                sb.append("]");
-                sendData(socket, sb.toString());
+                sendData(socket, message);
             }
         } catch (Exception e) {
             log.error(e);
         }
     }
 
+    /**
+     * Serializes one or more client invocation requests using the specified wire format. The
+     * invocations are streamed directly to a pooled, per-thread buffer, avoiding the creation of
+     * intermediate maps and strings for each invocation. A buffer that grew beyond
+     * {@link #MAX_POOLED_BUFFER}, or whose serialization failed, is discarded rather than pooled.
+     *
+     * @param format The wire format.
+     * @param invocation A single client invocation request, serialized as an object. If null, the
+     *            invocations parameter is used instead.
+     * @param invocations Multiple client invocation requests, serialized as an array.
+     * @return A message containing the serialized payload, or null if there are no invocations to
+     *         serialize.
+     * @throws IOException IO exception.
+     */
+    private static WebSocketMessage<?> serialize(WireFormat format, ClientInvocation invocation,
+                                                 Iterable<ClientInvocation> invocations) throws IOException {
+        if (format.isBinary()) {
+            ByteArrayBuilder buffer = binaryBuffers.get();
+            binaryBuffers.remove();
+            int size = -1;
+
+            try (JsonGenerator generator = format.getMapper().getFactory().createGenerator(buffer)) {
+                if (!write(generator, invocation, invocations)) {
+                    size = 0;
+                    return null;
+                }
+
+                generator.flush();
+                byte[] data = buffer.toByteArray();
+                size = data.length;
+                return new BinaryMessage(data);
+            } finally {
+                if (size >= 0 && size <= MAX_POOLED_BUFFER) {
+                    buffer.reset();
+                    binaryBuffers.set(buffer);
+                }
+            }
+        }
+
+        StringBuilderWriter buffer = textBuffers.get();
+        StringBuilder sb = buffer.getBuilder();
+        textBuffers.remove();
+
+        try (JsonGenerator generator = format.getMapper().getFactory().createGenerator(buffer)) {
+            if (!write(generator, invocation, invocations)) {
+                return null;
+            }
+
+            generator.flush();
+            return new TextMessage(sb.toString());
+        } finally {
+            if (sb.capacity() <= MAX_POOLED_BUFFER) {
+                sb.setLength(0);
+                textBuffers.set(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes one or more client invocation requests to a generator.
+     *
+     * @param generator The generator.
+     * @param invocation A single client invocation request, written as an object. If null, the
+     *            invocations parameter is used instead.
+     * @param invocations Multiple client invocation requests, written as an array.
+     * @return False if there were no invocations to write.
+     * @throws IOException IO exception.
+     */
+    private static boolean write(JsonGenerator generator, ClientInvocation invocation,
+                                 Iterable<ClientInvocation> invocations) throws IOException {
+        if (invocation != null) {
+            invocation.write(generator);
+            return true;
+        }
+
+        boolean empty = true;
+        generator.writeStartArray();
+
+        for (ClientInvocation inv : invocations) {
+            inv.write(generator);
+            empty = false;
+        }
+
+        generator.writeEndArray();
+        return !empty;
+    }
+
     /**
      * Sends an exception to the client for display via the web socket session.
      *
@@ -254,8 +432,10 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
                 }
             }
 
-            Map<String, Object> map = reader.readValue(payload);
-            processRequest(session, map);
+            session.getStatistics().recordReceived(utf8Length(payload));
+
+            Map<String, Object> map = WireFormat.JSON.getReader().readValue(payload);
+            dispatchRequest(session, map);
 
         } catch (Exception e) {
             attribs.remove(ATTR_BUFFER);
@@ -268,7 +448,8 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
      * Processes a client request containing a BLOB payload sent via the web socket session.
      * Extracts the client request from the message, creates a new execution context, and invokes
      * registered request handlers. If no registered request handler is capable of processing the
-     * request, an exception will be sent to the client.
+     * request, an exception will be sent to the client. If the session has negotiated a binary wire
+     * format, a message that does not begin with a json preamble is decoded using that format.
      *
      * @param socket The web socket session transmitting the request.
      * @param message The message containing the client request.
@@ -293,6 +474,15 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
                 log.warn("Large payload received from client (" + buffer.length + " bytes).");
             }
 
+            session.getStatistics().recordReceived(buffer.length);
+
+            WireFormat format = session.getWireFormat();
+
+            if (format.isBinary() && buffer.length > 0 && buffer[0] != '{') {
+                dispatchRequest(session, format.getReader().readValue(buffer));
+                return;
+            }
+
             ByteArrayInputStream is = new ByteArrayInputStream(buffer);
             byte[] preamble = new byte[100];
             int i = 0;
@@ -311,11 +501,11 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
                 preamble[i++] = (byte) b;
             }
 
-            Map<String, Object> map = reader.readValue(preamble, 0, i);
+            Map<String, Object> map = WireFormat.JSON.getReader().readValue(preamble, 0, i);
             @SuppressWarnings("unchecked")
             Map<String, Object> data = (Map<String, Object>) map.get("data");
             data.put("blob", is);
-            processRequest(session, map);
+            dispatchRequest(session, map);
 
         } catch (Exception e) {
             attribs.remove(ATTR_BUFFER);
@@ -324,29 +514,79 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
         }
     }
 
-    private void processRequest(Session session, Map<String, Object> map) throws Exception {
-        session._init((String) map.get("pid"));
-        session.updateLastActivity();
-        ClientRequest request = new ClientRequest(session, map);
-        IRequestHandler handler = handlers.get(request.getType());
+    /**
+     * Dispatches a client request for processing. If request threads are enabled, the request is
+     * queued to the session's request executor, which processes requests for the session one at a
+     * time in the order received. Otherwise, the request is processed on the current thread.
+     *
+     * @param session The session that received the request.
+     * @param map The client request, as a map.
+     * @throws Exception Unspecified exception.
+     */
+    private void dispatchRequest(Session session, Map<String, Object> map) throws Exception {
+        RequestExecutor executor = session.getRequestExecutor();
 
-        if (handler == null) {
-            throw new IllegalArgumentException("No registered handler for request type: " + request.getType());
+        if (executor == null) {
+            processRequest(session, map);
+            return;
         }
 
-        ExecutionContext.clear();
-        ExecutionContext.put(ExecutionContext.ATTR_REQUEST, request);
+        executor.execute(() -> {
+            try {
+                processRequest(session, map);
+            } catch (Exception e) {
+                log.error("Error processing client request.", e);
+                sendError(session.getSocket(), e);
+            }
+        });
+    }
+
+    /**
+     * Processes a client request. All client invocations generated during the execution cycle are
+     * queued and sent to the client as a single message when the cycle completes. Use
+     * {@link Synchronizer#flush()} where invocations must be delivered before then. A new execution
+     * context is established on the processing thread and cleared afterwards.
+     *
+     * @param session The session that received the request.
+     * @param map The client request, as a map.
+     * @throws Exception Unspecified exception.
+     */
+    private void processRequest(Session session, Map<String, Object> map) throws Exception {
+        ReentrantLock lock = session.getExecutionLock();
+        lock.lock();
 
         try {
-            handler.handleRequest(request);
-            session.notifySessionListeners(request);
-            request.getPage().getEventQueue().processAll();
-        } catch (Exception e) {
-            request.getPage().getEventQueue().clearAll();
-            log.error(e);
-            throw e;
-        } finally {
+            session._init((String) map.get("pid"));
+            session.updateLastActivity();
+            ClientRequest request = new ClientRequest(session, map);
+            IRequestHandler handler = handlers.get(request.getType());
+
+            if (handler == null) {
+                throw new IllegalArgumentException("No registered handler for request type: " + request.getType());
+            }
+
             ExecutionContext.clear();
+            ExecutionContext.put(ExecutionContext.ATTR_REQUEST, request);
+            Synchronizer synchronizer = session.getSynchronizer();
+            synchronizer.startQueueing();
+
+            try {
+                handler.handleRequest(request);
+                session.notifySessionListeners(request);
+                request.getPage().getEventQueue().processAll();
+            } catch (Exception e) {
+                request.getPage().getEventQueue().clearAll();
+                log.error(e);
+                throw e;
+            } finally {
+                try {
+                    synchronizer.stopQueueing();
+                } finally {
+                    ExecutionContext.clear();
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -357,7 +597,14 @@ public class WebSocketHandler extends AbstractWebSocketHandler implements BeanPo
 
     @Override
     public void afterConnectionClosed(WebSocketSession socket, CloseStatus status) throws Exception {
-        sessions.destroySession(socket, status);
+        Session session = sessions.getSession(socket.getId());
+        RequestExecutor executor = session == null ? null : session.getRequestExecutor();
+
+        if (executor == null) {
+            sessions.destroySession(socket, status);
+        } else {
+            executor.execute(() -> sessions.destroySession(socket, status));
+        }
     }
 
     @Override
@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.websocket;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Encodings supported for messages exchanged over the web socket connection. JSON (sent as text
+ * messages) is always supported. Binary encodings are negotiated with the client when the session
+ * is initialized and are then used for both inbound and outbound messages.
+ */
+public enum WireFormat {
+    
+    /**
+     * JSON text encoding (the default).
+     */
+    JSON(new ObjectMapper()),
+    
+    /**
+     * Concise Binary Object Representation (RFC 7049).
+     */
+    CBOR(new ObjectMapper(new CBORFactory()));
+    
+    private final ObjectMapper mapper;
+    
+    private final ObjectReader reader;
+    
+    WireFormat(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(Map.class);
+    }
+    
+    /**
+     * Returns the wire format matching the specified name (case-insensitive).
+     *
+     * @param name The name of the wire format.
+     * @return The matching wire format, or null if none.
+     */
+    public static WireFormat fromName(String name) {
+        for (WireFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Selects the wire format to use for a session.
+     *
+     * @param preferred The preferred wire format.
+     * @param supported Names of the wire formats supported by the client (may be null).
+     * @return The preferred wire format if supported by the client, or JSON otherwise.
+     */
+    public static WireFormat negotiate(WireFormat preferred, Collection<?> supported) {
+        if (preferred != null && supported != null) {
+            for (Object name : supported) {
+                if (fromName(String.valueOf(name)) == preferred) {
+                    return preferred;
+                }
+            }
+        }
+        
+        return JSON;
+    }
+    
+    /**
+     * Returns the name by which the client identifies this wire format.
+     *
+     * @return The wire format name.
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+    
+    /**
+     * Returns true if messages in this format are transmitted as binary messages.
+     *
+     * @return True if a binary format.
+     */
+    public boolean isBinary() {
+        return this != JSON;
+    }
+    
+    /**
+     * Returns the object mapper for this wire format.
+     *
+     * @return The object mapper.
+     */
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+    
+    /**
+     * Returns a reader for deserializing requests in this wire format.
+     *
+     * @return The object reader.
+     */
+    public ObjectReader getReader() {
+        return reader;
+    }
+    
+}
@@ -276,7 +276,8 @@ define('fujion-core', ['jquery', 'jquery-ui', 'lodash'], function($) {
 			this.socket.onerror = _onerror.bind(this);
 			this.socket.onmessage = _onmessage.bind(this);
 			this.socket.onopen = _onopen.bind(this);
-			this.socket.binaryType = 'blob';
+			this.socket.binaryType = 'arraybuffer';
+			this.wireFormat = 'json';
 			this.lastSend = 0;
 			this.lastReceive = 0;
 			this.setKeepalive(options.keepalive);
@@ -287,7 +288,9 @@ define('fujion-core', ['jquery', 'jquery-ui', 'lodash'], function($) {
 					baseURL: options.baseurl,
 					viewportHeight: $(window).height(),
 					viewportWidth: $(window).width(),
-					timezoneOffset: new Date().getTimezoneOffset()
+					timezoneOffset: new Date().getTimezoneOffset(),
+					wireFormats: window.TextEncoder && window.TextDecoder ? ['cbor', 'json'] : ['json'],
+					compression: window.DecompressionStream && window.TextDecoder ? ['gzip'] : []
 				};
 				
 				fujion.flatten(screen, data, 'screen', 1);
@@ -296,8 +299,40 @@ define('fujion-core', ['jquery', 'jquery-ui', 'lodash'], function($) {
 			}
 		
 			function _onmessage(message) {
+				var data = message.data,
+					self = this,
+					pending;
+				
 				this.lastReceive = Date.now();
-				var action = JSON.parse(message.data);
+				
+				// Compressed messages are inflated asynchronously, so later messages must wait their turn.
+				if (this.pending || _isCompressed(data)) {
+					pending = this.pending = (this.pending || Promise.resolve()).then(function() {
+						return _isCompressed(data) ? _inflate(data) : data;
+					}).then(function(data) {
+						self.pending === pending ? delete self.pending : null;
+						_receive(data);
+					}).catch(fujion.fatal);
+				} else {
+					_receive(data);
+				}
+			}
+			
+			function _isCompressed(data) {
+				var bytes = data instanceof ArrayBuffer && data.byteLength > 1 ? new Uint8Array(data, 0, 2) : null;
+				return bytes !== null && bytes[0] === 0x1f && bytes[1] === 0x8b;
+			}
+			
+			function _inflate(data) {
+				var stream = new Blob([data]).stream().pipeThrough(new DecompressionStream('gzip'));
+				return new Response(stream).arrayBuffer();
+			}
+			
+			function _receive(data) {
+				var action = !(data instanceof ArrayBuffer) ? JSON.parse(data)
+						: new Uint8Array(data, 0, 1)[0] < 0x80 ? JSON.parse(new TextDecoder('utf-8').decode(data))
+						: fujion.ws.cbor.decode(data);
+				
 				fujion.log.debug('Received: ', action);
 				fujion.action.queueAction(action);
 			}
@@ -329,6 +364,10 @@ define('fujion-core', ['jquery', 'jquery-ui', 'lodash'], function($) {
 			}
 		},
 		
+		setWireFormat: function(wireFormat) {
+			this.wireFormat = wireFormat;
+		},
+		
 		isConnected: function() {
 			return this.socket && this.socket.readyState === WebSocket.OPEN;
 		},
@@ -353,6 +392,8 @@ define('fujion-core', ['jquery', 'jquery-ui', 'lodash'], function($) {
 				var blob = data.blob;
 				delete data.blob;
 				this.socket.send(new Blob([JSON.stringify(pkt), '\n', blob]));
+			} else if (this.wireFormat === 'cbor') {
+				this.socket.send(this.cbor.encode(pkt));
 			} else {
 				this.socket.send(JSON.stringify(pkt));
 			}
@@ -362,6 +403,251 @@ define('fujion-core', ['jquery', 'jquery-ui', 'lodash'], function($) {
 			if (!nolog) {
 				fujion.log.debug('Sent: ', pkt);
 			}
+		},
+		
+		/**
+		 * Minimal CBOR (RFC 7049) codec for the binary wire format.
+		 */
+		cbor: {
+			encode: function(value) {
+				var buffer = new ArrayBuffer(256),
+					view = new DataView(buffer),
+					bytes = new Uint8Array(buffer),
+					offset = 0,
+					encoder = new TextEncoder();
+				
+				_write(value);
+				return buffer.slice(0, offset);
+				
+				function _ensure(length) {
+					if (offset + length > buffer.byteLength) {
+						var old = bytes;
+						buffer = new ArrayBuffer(Math.max(buffer.byteLength * 2, offset + length));
+						view = new DataView(buffer);
+						bytes = new Uint8Array(buffer);
+						bytes.set(old);
+					}
+				}
+				
+				function _head(major, length) {
+					major <<= 5;
+					
+					if (length < 24) {
+						_ensure(1);
+						view.setUint8(offset++, major | length);
+					} else if (length < 0x100) {
+						_ensure(2);
+						view.setUint8(offset++, major | 24);
+						view.setUint8(offset++, length);
+					} else if (length < 0x10000) {
+						_ensure(3);
+						view.setUint8(offset++, major | 25);
+						view.setUint16(offset, length);
+						offset += 2;
+					} else if (length < 0x100000000) {
+						_ensure(5);
+						view.setUint8(offset++, major | 26);
+						view.setUint32(offset, length);
+						offset += 4;
+					} else {
+						_ensure(9);
+						view.setUint8(offset++, major | 27);
+						view.setUint32(offset, Math.floor(length / 0x100000000));
+						view.setUint32(offset + 4, length % 0x100000000);
+						offset += 8;
+					}
+				}
+				
+				function _write(value) {
+					if (value === null || value === undefined || _.isFunction(value)) {
+						_head(7, 22);
+					} else if (value === false || value === true) {
+						_head(7, value ? 21 : 20);
+					} else if (_.isNumber(value)) {
+						if (Number.isSafeInteger(value)) {
+							value < 0 ? _head(1, -1 - value) : _head(0, value);
+						} else {
+							_ensure(9);
+							view.setUint8(offset++, 0xfb);
+							view.setFloat64(offset, value);
+							offset += 8;
+						}
+					} else if (_.isString(value)) {
+						var utf8 = encoder.encode(value);
+						_head(3, utf8.length);
+						_ensure(utf8.length);
+						bytes.set(utf8, offset);
+						offset += utf8.length;
+					} else if (_.isFunction(value.toJSON)) {
+						_write(value.toJSON());
+					} else if (_.isArray(value)) {
+						_head(4, value.length);
+						_.forEach(value, _write);
+					} else {
+						var keys = _.filter(_.keys(value), function(key) {
+							return value[key] !== undefined && !_.isFunction(value[key]);
+						});
+						
+						_head(5, keys.length);
+						
+						_.forEach(keys, function(key) {
+							_write(key);
+							_write(value[key]);
+						});
+					}
+				}
+			},
+			
+			decode: function(buffer) {
+				var view = new DataView(buffer),
+					offset = 0,
+					decoder = new TextDecoder('utf-8'),
+					BREAK = {};
+				
+				return _read();
+				
+				function _length(info) {
+					var value;
+					
+					switch (info) {
+						case 24:
+							return view.getUint8(offset++);
+						case 25:
+							value = view.getUint16(offset);
+							offset += 2;
+							return value;
+						case 26:
+							value = view.getUint32(offset);
+							offset += 4;
+							return value;
+						case 27:
+							value = view.getUint32(offset) * 0x100000000 + view.getUint32(offset + 4);
+							offset += 8;
+							return value;
+						case 31:
+							return -1;
+						default:
+							if (info < 24) {
+								return info;
+							}
+					}
+					
+					throw new Error('Invalid CBOR data at offset ' + offset);
+				}
+				
+				function _half(value) {
+					var sign = value & 0x8000 ? -1 : 1,
+						exp = (value & 0x7c00) >> 10,
+						frac = value & 0x03ff;
+					
+					return sign * (exp === 0 ? frac * Math.pow(2, -24)
+							: exp === 31 ? (frac ? NaN : Infinity)
+							: (frac + 1024) * Math.pow(2, exp - 25));
+				}
+				
+				function _bytes(length) {
+					var value = new Uint8Array(buffer, offset, length);
+					offset += length;
+					return value;
+				}
+				
+				function _chunks(major) {
+					var chunks = [],
+						chunk;
+					
+					while ((chunk = _read()) !== BREAK) {
+						chunks.push(chunk);
+					}
+					
+					if (major === 3) {
+						return chunks.join('');
+					}
+					
+					var length = _.sumBy(chunks, 'length'),
+						value = new Uint8Array(length),
+						pos = 0;
+					
+					_.forEach(chunks, function(chunk) {
+						value.set(chunk, pos);
+						pos += chunk.length;
+					});
+					
+					return value;
+				}
+				
+				function _read() {
+					var initial = view.getUint8(offset++),
+						major = initial >> 5,
+						info = initial & 0x1f,
+						length, value, item;
+					
+					if (major === 7) {
+						switch (info) {
+							case 20:
+								return false;
+							case 21:
+								return true;
+							case 22:
+								return null;
+							case 23:
+								return undefined;
+							case 25:
+								value = _half(view.getUint16(offset));
+								offset += 2;
+								return value;
+							case 26:
+								value = view.getFloat32(offset);
+								offset += 4;
+								return value;
+							case 27:
+								value = view.getFloat64(offset);
+								offset += 8;
+								return value;
+							case 31:
+								return BREAK;
+							default:
+								return _length(info);
+						}
+					}
+					
+					length = _length(info);
+					
+					switch (major) {
+						case 0:
+							return length;
+						case 1:
+							return -1 - length;
+						case 2:
+							return length < 0 ? _chunks(major) : _bytes(length);
+						case 3:
+							return length < 0 ? _chunks(major) : decoder.decode(_bytes(length));
+						case 4:
+							value = [];
+							
+							while (length < 0 ? (item = _read()) !== BREAK : value.length < length) {
+								value.push(length < 0 ? item : _read());
+							}
+							
+							return value;
+						case 5:
+							value = {};
+							
+							for (var i = 0; length < 0 || i < length; i++) {
+								item = _read();
+								
+								if (item === BREAK) {
+									break;
+								}
+								
+								value[item] = _read();
+							}
+							
+							return value;
+						case 6:
+							return _read();
+					}
+				}
+			}
 		}
 	},
 	
@@ -108,6 +108,21 @@ define('fujion-grid', ['fujion-core', 'fujion-widget', 'fujion-grid-css'], funct
 		render$: function() {
 			return $('<tbody>');
 		},
+		
+		/*------------------------------ Virtual Scrolling ------------------------------*/
+		
+		virtualScroller$: function() {
+			return this.widget$.scrollParent();
+		},
+		
+		virtualSpacers: function(enable) {
+			this.widget$.siblings('.fujion-virtual-spacer').remove();
+			
+			return !enable ? null : [
+				$('<tbody class="fujion-virtual-spacer"><tr/></tbody>').insertBefore(this.widget$).children(),
+				$('<tbody class="fujion-virtual-spacer"><tr/></tbody>').insertAfter(this.widget$).children()
+			];
+		},
 	
 		/*------------------------------ State ------------------------------*/
 		
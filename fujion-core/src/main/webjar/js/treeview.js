@@ -86,7 +86,7 @@ define('fujion-treeview', ['fujion-core', 'fujion-widget', 'fujion-treeview-css'
 		
 		init: function() {
 			this._super();
-			this.initState({collapsed: false});
+			this.initState({collapsed: false, expandable: false});
 			this.forwardToServer('change toggle');
 		},
 				
@@ -115,7 +115,7 @@ define('fujion-treeview', ['fujion-core', 'fujion-widget', 'fujion-treeview-css'
 		},
 		
 		_updateToggle: function() {
-			this.sub$('ctl').toggleClass('fujion_treenode-nochildren', !this.getChildCount());
+			this.sub$('ctl').toggleClass('fujion_treenode-nochildren', !this.getChildCount() && !this.getState('expandable'));
 		},
 		
 		/*------------------------------ State ------------------------------*/
@@ -126,6 +126,10 @@ define('fujion-treeview', ['fujion-core', 'fujion-widget', 'fujion-treeview-css'
 			this.toggleClass('fujion_treenode-collapsed', v);
 		},
 		
+		expandable: function(v) {
+			this._updateToggle();
+		},
+		
 		selected: function(v) {
 			this.toggleClass('fujion_treenode-selected', v);
 		}
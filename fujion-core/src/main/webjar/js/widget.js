@@ -219,6 +219,29 @@ define('fujion-widget', ['fujion-core', 'bootstrap', 'jquery-ui', 'jquery-scroll
 			fujion.swap(child1.widget$, child2.widget$);
 		},
 		
+		/**
+		 * Rearranges a contiguous range of children, moving their widgets within the DOM.
+		 *
+		 * @param {number} start Index of the first child in the range.
+		 * @param {number[]} order For each position in the range, the current index of the
+		 * 		child that is to occupy it.
+		 */
+		reorderChildren: function(start, order) {
+			var children = this._children,
+				moved = _.map(order, function(index) {
+					return children[index];
+				});
+		
+			Array.prototype.splice.apply(children, [start, moved.length].concat(moved));
+		
+			for (var i = start + moved.length - 1; i >= start; i--) {
+				var child = children[i],
+					ref = children[i + 1];
+		
+				this._attachWidgetAt(child.widget$, this.anchor$(child.widget$), fujion.$(ref));
+			}
+		},
+		
 		/**
 		 * Attaches a widget to the DOM at the specified position.
 		 * 
@@ -747,6 +770,18 @@ define('fujion-widget', ['fujion-core', 'bootstrap', 'jquery-ui', 'jquery-scroll
 			}
 			
 			return changed;
+		},
+		
+		/**
+		 * Updates multiple state values, in the order in which they are declared.
+		 * 
+		 * @param {object} states Map of state names to their new values.
+		 * @param {boolean} [fromServer] If true, do not sync state back to server.
+		 */
+		updateStates: function(states, fromServer) {
+			_.forOwn(states, function(value, key) {
+				this.updateState(key, value, fromServer);
+			}.bind(this));
 		}
 
 	});
@@ -916,6 +951,85 @@ define('fujion-widget', ['fujion-core', 'bootstrap', 'jquery-ui', 'jquery-scroll
 			}
 		},
 		
+		/*------------------------------ Virtual Scrolling ------------------------------*/
+		
+		/**
+		 * Returns the height of a single rendered item within a virtually scrolled widget.
+		 * 
+		 * @return {number} The item height, or 0 if no items are rendered.
+		 */
+		virtualItemHeight: function() {
+			var child = this._children[0];
+			return child && child.widget$ ? child.widget$.outerHeight() : 0;
+		},
+		
+		/**
+		 * Reports the current viewport of a virtually scrolled widget to the server if it has changed.
+		 */
+		virtualReport: function() {
+			var vw = this._virtual || {},
+				height = this.virtualItemHeight(),
+				scroller$ = this.virtualScroller$(),
+				first, count;
+			
+			if (!height || !scroller$ || !scroller$.length) {
+				return;
+			}
+			
+			first = Math.floor(scroller$.scrollTop() / height) + (vw.spacers ? 0 : vw.offset || 0);
+			count = Math.ceil(scroller$.innerHeight() / height);
+			
+			if (first !== vw.first || count !== vw.count) {
+				vw.first = first;
+				vw.count = count;
+				this.trigger('viewport', {first: first, count: count});
+			}
+		},
+		
+		/**
+		 * Returns the element whose scroll position determines the viewport of a virtually scrolled widget.
+		 * 
+		 * @return {jquery} The scrolling element.
+		 */
+		virtualScroller$: function() {
+			return this.widget$;
+		},
+		
+		/**
+		 * Creates or removes the elements that reserve space for items not rendered by the server. Widgets
+		 * that cannot accommodate such elements need not override this. For these, the scroll position is
+		 * instead adjusted as the rendered window shifts.
+		 * 
+		 * @param {boolean} enable If true, create the spacers; otherwise, remove them.
+		 * @return {jquery[]} The leading and trailing spacers, or null if none.
+		 */
+		virtualSpacers: function(enable) {
+			return null;
+		},
+		
+		/**
+		 * Called by the server when the window of rendered items within a virtually scrolled widget changes.
+		 * 
+		 * @param {number} offset Index of the first rendered item.
+		 * @param {number} total Total number of items, whether rendered or not.
+		 */
+		virtualWindow: function(offset, total) {
+			var vw = this._virtual = this._virtual || {},
+				delta = offset - (vw.offset || 0),
+				height = this.virtualItemHeight(),
+				scroller$ = this.virtualScroller$();
+			
+			vw.offset = offset;
+			vw.total = total;
+			
+			if (vw.spacers) {
+				vw.spacers[0].height(offset * height);
+				vw.spacers[1].height(Math.max(0, total - offset - this._children.length) * height);
+			} else if (delta && height && scroller$) {
+				scroller$.scrollTop(scroller$.scrollTop() - delta * height);
+			}
+		},
+		
 		/*------------------------------ State ------------------------------*/
 		
 		badge: function(v) {
@@ -1089,6 +1203,20 @@ define('fujion-widget', ['fujion-core', 'bootstrap', 'jquery-ui', 'jquery-scroll
 			this.attr('tabindex', v, this.input$());
 		},
 		
+		virtual: function(v) {
+			var vw = this._virtual = this._virtual || {},
+				scroller$ = this.virtualScroller$();
+			
+			scroller$ ? scroller$.off('scroll.fujion_virtual') : null;
+			vw.spacers = this.virtualSpacers(v);
+			this.forwardToServer('viewport', !v);
+			
+			if (v && scroller$) {
+				scroller$.on('scroll.fujion_virtual', _.throttle(this.virtualReport.bind(this), 100));
+				_.defer(this.virtualReport.bind(this));
+			}
+		},
+		
 		visible: function(v) {
 			this.toggleClass('hidden', !v);
 		},
@@ -2797,6 +2925,13 @@ define('fujion-widget', ['fujion-core', 'bootstrap', 'jquery-ui', 'jquery-scroll
 			return $('<select>');
 		},
 		
+		/*------------------------------ Virtual Scrolling ------------------------------*/
+		
+		virtualItemHeight: function() {
+			var size = this.getState('size');
+			return size > 1 ? this.widget$.innerHeight() / size : this._super();
+		},
+		
 		/*------------------------------ State ------------------------------*/
 		
 		multiple: function(v) {
@@ -3018,6 +3153,30 @@ define('fujion-widget', ['fujion-core', 'bootstrap', 'jquery-ui', 'jquery-scroll
 			});
 		},
 		
+		/*------------------------------ Virtual Scrolling ------------------------------*/
+		
+		virtualItemHeight: function() {
+			var menu$ = this.virtualScroller$();
+			return menu$ ? menu$.children().first().outerHeight() || 0 : 0;
+		},
+		
+		virtualScroller$: function() {
+			var inp$ = this.input$();
+			return inp$.autocomplete('instance') ? inp$.autocomplete('widget') : null;
+		},
+		
+		virtualWindow: function(offset, total) {
+			var menu$ = this.virtualScroller$(),
+				top = menu$ ? menu$.scrollTop() : 0;
+			
+			if (menu$ && this.getState('_open')) {
+				this.input$().autocomplete('search', this.input$().val());
+				menu$.scrollTop(top);
+			}
+			
+			this._super(offset, total);
+		},
+		
 		/*------------------------------ State ------------------------------*/
 
 		autoFilter: function(v) {
@@ -21,17 +21,51 @@
 package org.fujion.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.fujion.ancillary.IElementIdentifier;
+import org.fujion.ancillary.MethodInvoker;
+import org.fujion.annotation.EventHandler;
+import org.fujion.annotation.EventHandlerScanner;
+import org.fujion.client.ClientInvocation;
+import org.fujion.client.ClientInvocationQueue;
 import org.fujion.component.Div;
+import org.fujion.event.Event;
+import org.fujion.event.EventListenerSet;
+import org.fujion.event.IEventListener;
 import org.fujion.event.KeyCode;
+import org.fujion.expression.ContextAccessor;
+import org.fujion.expression.ELEvaluator;
+import org.fujion.model.DataProviderModel;
+import org.fujion.model.IListModel.IListModelListener;
+import org.fujion.model.IListModel.ListEventType;
+import org.fujion.model.ListModel;
+import org.fujion.model.ListModelDataProvider;
+import org.fujion.model.ModelAndView;
+import org.fujion.websocket.WireFormat;
+import org.junit.Assume;
 import org.junit.Test;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class Tests {
     
@@ -78,4 +112,380 @@ public class Tests {
         assertNull(cmpt.getAttribute(ATTR_OBJECT, Div.class));
     }
 
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private List<ClientInvocation> createInvocations(int count) {
+        List<ClientInvocation> invocations = new ArrayList<>(count);
+        IElementIdentifier target = () -> "fujion_2";
+
+        for (int i = 0; i < count; i++) {
+            invocations.add(new ClientInvocation(() -> "fujion_1", "updateState", "label", "Row " + i,
+                    Collections.singletonMap("date", new Date(i)), Arrays.asList(1, 2, target),
+                    new Object[] { target, new Date(i) }));
+        }
+
+        return invocations;
+    }
+
+    private String legacyJson(List<ClientInvocation> invocations) throws Exception {
+        StringBuilder sb = new StringBuilder();
+
+        for (ClientInvocation invocation : invocations) {
+            sb.append(sb.length() == 0 ? "[" : ",").append(mapper.writeValueAsString(invocation.toMap()));
+        }
+
+        return sb.append("]").toString();
+    }
+
+    private String streamingJson(List<ClientInvocation> invocations, StringBuilderWriter buffer) throws Exception {
+        buffer.getBuilder().setLength(0);
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartArray();
+
+            for (ClientInvocation invocation : invocations) {
+                invocation.write(generator);
+            }
+
+            generator.writeEndArray();
+        }
+
+        return buffer.toString();
+    }
+
+    @Test
+    public void streamingInvocationTest() throws Exception {
+        String legacy = legacyJson(createInvocations(10));
+        String streaming = streamingJson(createInvocations(10), new StringBuilderWriter());
+        assertEquals(mapper.readTree(legacy), mapper.readTree(streaming));
+    }
+
+    @Test
+    public void nestedArrayInvocationTest() throws Exception {
+        IElementIdentifier target = () -> "fujion_2";
+        Object[] nested = { target, new Date(5), new Object[] { target }, Collections.singletonMap("a", target) };
+        ClientInvocation invocation = new ClientInvocation(() -> "fujion_1", "test", (Object) nested);
+        String json = streamingJson(Collections.singletonList(invocation), new StringBuilderWriter());
+        String expected = "[{\"fcn\":\"test\",\"tgt\":\"fujion_1\",\"arg\":[[{\"__fujion__\":\"fujion_2\"},5,"
+                + "[{\"__fujion__\":\"fujion_2\"}],{\"a\":{\"__fujion__\":\"fujion_2\"}}]]}]";
+        assertEquals(mapper.readTree(expected), mapper.readTree(json));
+        assertSame(target, nested[0]);
+        invocation.toMap();
+        assertSame(target, nested[0]);
+        assertSame(target, ((Object[]) nested[2])[0]);
+    }
+
+    /**
+     * Compares bytes allocated per flush by the legacy (map-based) and streaming serializers.
+     */
+    @Test
+    public void streamingInvocationAllocationTest() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        StringBuilderWriter buffer = new StringBuilderWriter();
+        int count = 5000;
+        long legacyBytes = 0;
+        long streamingBytes = 0;
+
+        for (int i = 0; i < 5; i++) {
+            List<ClientInvocation> invocations = createInvocations(count);
+            long start = bean.getThreadAllocatedBytes(threadId);
+            legacyJson(invocations);
+            legacyBytes = bean.getThreadAllocatedBytes(threadId) - start;
+            invocations = createInvocations(count);
+            start = bean.getThreadAllocatedBytes(threadId);
+            streamingJson(invocations, buffer);
+            streamingBytes = bean.getThreadAllocatedBytes(threadId) - start;
+        }
+
+        assertTrue("Streaming serializer allocated " + streamingBytes + " bytes versus " + legacyBytes,
+            streamingBytes < legacyBytes);
+    }
+
+    @Test
+    public void wireFormatTest() throws Exception {
+        assertEquals(WireFormat.CBOR, WireFormat.negotiate(WireFormat.CBOR, Arrays.asList("cbor", "json")));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate(WireFormat.CBOR, Arrays.asList("json")));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate(WireFormat.CBOR, null));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        try (JsonGenerator generator = WireFormat.CBOR.getMapper().getFactory().createGenerator(os)) {
+            createInvocations(1).get(0).write(generator);
+        }
+
+        Map<String, Object> map = WireFormat.CBOR.getReader().readValue(os.toByteArray());
+        assertEquals("updateState", map.get("fcn"));
+        assertEquals("fujion_1", map.get("tgt"));
+    }
+
+    @Test
+    public void invocationQueueTest() {
+        IElementIdentifier wgt1 = () -> "fujion_1";
+        IElementIdentifier wgt2 = () -> "fujion_2";
+        ClientInvocationQueue queue = new ClientInvocationQueue();
+        queue.queue(new ClientInvocation(wgt1, "updateState", "label", "a", true));
+        queue.queue(new ClientInvocation(wgt2, "updateState", "label", "b", true));
+        queue.queue(new ClientInvocation(wgt1, "updateState", "hint", "c", true));
+        queue.queue(new ClientInvocation(wgt1, "updateState", "label", "d", true));
+        queue.queue(new ClientInvocation(wgt2, "focus"));
+        queue.queue(new ClientInvocation(wgt2, "updateState", "label", "e", true));
+        List<ClientInvocation> invocations = queue.flush();
+        assertEquals(5, invocations.size());
+        assertEquals("updateState", invocations.get(0).getFunction());
+        assertEquals("updateState", invocations.get(1).getFunction());
+        ClientInvocation invocation = invocations.get(2);
+        assertEquals("updateStates", invocation.getFunction());
+        Map<?, ?> states = (Map<?, ?>) invocation.getArguments()[0];
+        assertEquals(Arrays.asList("hint", "label"), new ArrayList<>(states.keySet()));
+        assertEquals("d", states.get("label"));
+        assertEquals("focus", invocations.get(3).getFunction());
+        assertEquals("updateState", invocations.get(4).getFunction());
+        assertTrue(queue.flush().isEmpty());
+        // A state update is never merged ahead of an intervening invocation. This is the sequence
+        // produced by setLabel, creating a popup and then setPopup with a reference to it.
+        IElementIdentifier popup = () -> "fujion_3";
+        queue.queue(new ClientInvocation(wgt1, "updateState", "label", "a", true));
+        queue.queue(new ClientInvocation((String) null, "fujion.widget.create", null, Collections.singletonMap("id", "fujion_3"), null));
+        queue.queue(new ClientInvocation(wgt1, "updateState", "popup", popup, true));
+        invocations = queue.flush();
+        assertEquals(3, invocations.size());
+        assertEquals("label", invocations.get(0).getArguments()[0]);
+        assertEquals("fujion.widget.create", invocations.get(1).getFunction());
+        assertEquals("popup", invocations.get(2).getArguments()[0]);
+        // Invocations targeting a discarded widget are dropped, but only those queued beforehand.
+        queue.queue(new ClientInvocation(wgt1, "updateState", "label", "a", true));
+        queue.queue(new ClientInvocation(wgt2, "focus"));
+        queue.discard(wgt1);
+        queue.queue(new ClientInvocation(wgt1, "destroy"));
+        invocations = queue.flush();
+        assertEquals(2, invocations.size());
+        assertEquals("focus", invocations.get(0).getFunction());
+        assertEquals("destroy", invocations.get(1).getFunction());
+    }
+
+
+    public static class EventController {
+
+        private int clicks;
+
+        private Event lastEvent;
+
+        @EventHandler("click")
+        private void onClick(Event event) {
+            clicks++;
+            lastEvent = event;
+        }
+
+        @EventHandler("click")
+        private void onClickNoArg() {
+            clicks++;
+        }
+
+        @EventHandler("click")
+        private static void onClickStatic(Event event) {
+            staticClicks++;
+        }
+    }
+
+    private static int staticClicks;
+
+    @Test
+    public void eventDispatchTest() {
+        Div div = new Div();
+        EventController controller = new EventController();
+        EventHandlerScanner.wire(controller, div);
+        Event event = new Event("click", div);
+        int clicks = staticClicks;
+        div.fireEvent(event);
+        assertEquals(2, controller.clicks);
+        assertSame(event, controller.lastEvent);
+        assertEquals(clicks + 1, staticClicks);
+
+        List<String> calls = new ArrayList<>();
+        EventListenerSet listeners = new EventListenerSet();
+        IEventListener listener2 = e -> calls.add("2");
+        IEventListener listener1 = e -> {
+            calls.add("1");
+            listeners.remove(listener2);
+        };
+        assertTrue(listeners.add(listener1));
+        assertTrue(listeners.add(listener2));
+        assertFalse(listeners.add(listener1));
+        listeners.onEvent(new Event("test"));
+        assertEquals(Arrays.asList("1", "2"), calls);
+        assertEquals(1, listeners.size());
+        listeners.clear();
+        assertTrue(listeners.isEmpty());
+    }
+
+    @Test
+    public void expressionCacheTest() {
+        ELEvaluator evaluator = ELEvaluator.getInstance();
+        long misses = evaluator.getCacheMisses();
+        long hits = evaluator.getCacheHits();
+        assertEquals("OK", evaluator.evaluate("OK"));
+        assertEquals(misses, evaluator.getCacheMisses());
+        assertEquals("3 items", evaluator.evaluate("${1 + 2} items"));
+        assertEquals("3 items", evaluator.evaluate("${1 + 2} items"));
+        assertEquals(misses + 1, evaluator.getCacheMisses());
+        assertEquals(hits + 1, evaluator.getCacheHits());
+        assertTrue(ELEvaluator.isLiteral("label"));
+        assertFalse(ELEvaluator.isLiteral("${label}"));
+    }
+
+    @Test
+    public void compiledExpressionTest() {
+        ELEvaluator evaluator = ELEvaluator.getInstance();
+        Div div = new Div();
+        div.setAttribute("greeting", "hello");
+
+        try {
+            evaluator.setCompilerMode(SpelCompilerMode.IMMEDIATE);
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("hello world", evaluator.evaluate("${greeting} world", div));
+            }
+
+            div.setAttribute("greeting", "goodbye");
+            assertEquals("goodbye world", evaluator.evaluate("${greeting} world", div));
+            Div other = new Div();
+            other.setName("other");
+            assertEquals("goodbye", evaluator.evaluate("${greeting}", div));
+            assertEquals("goodbye", evaluator.evaluate("${greeting}", div));
+            assertNull(evaluator.evaluate("${greeting}", other));
+            div.setAttribute("name", "attribute");
+            assertEquals("attribute", evaluator.evaluate("${name}", div));
+            assertEquals("attribute", evaluator.evaluate("${name}", div));
+            assertEquals("other", evaluator.evaluate("${name}", other));
+            assertNull(ContextAccessor.readValue("text", "bytes"));
+        } finally {
+            evaluator.setCompilerMode(SpelCompilerMode.OFF);
+        }
+    }
+
+    public static class InvokerTarget {
+
+        private String result;
+
+        private void set(int count, boolean flag) {
+            result = count + ":" + flag;
+        }
+
+        public String join(String a, KeyCode b, long c) {
+            return a + b + c;
+        }
+
+        public static int twice(Integer value) {
+            return value * 2;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    @Test
+    public void methodInvokerTest() throws Exception {
+        InvokerTarget target = new InvokerTarget();
+        MethodInvoker invoker = MethodInvoker.forMethod(InvokerTarget.class.getDeclaredMethod("set", int.class, boolean.class));
+        assertSame(invoker, MethodInvoker.forMethod(invoker.getMethod()));
+        assertNull(invoker.invoke(target, "12", "TRUE"));
+        assertEquals("12:true", target.result);
+        invoker = MethodInvoker.forMethod(InvokerTarget.class.getMethod("join", String.class, KeyCode.class, long.class));
+        assertEquals("xVK_ENTER3", invoker.invoke(target, "x", "vk_enter", "3"));
+        invoker = MethodInvoker.forMethod(InvokerTarget.class.getMethod("twice", Integer.class));
+        assertEquals(8, invoker.invoke(null, "4"));
+        invoker = MethodInvoker.forMethod(InvokerTarget.class.getMethod("fail", String.class));
+
+        try {
+            invoker.invoke(target, "failed");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void listModelEventTest() {
+        ListModel<String> model = new ListModel<>(Arrays.asList("d", "a", "c", "b", "e"));
+        List<String> events = new ArrayList<>();
+        model.addEventListener(new IListModelListener() {
+
+            @Override
+            public void onListChange(ListEventType type, int startIndex, int endIndex) {
+                events.add(type + ":" + startIndex + "-" + endIndex);
+            }
+
+            @Override
+            public void onListPermute(int startIndex, int endIndex, int[] permutation) {
+                events.add("PERMUTE:" + startIndex + "-" + endIndex + Arrays.toString(permutation));
+            }
+        });
+        model.sort(null);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), new ArrayList<>(model));
+        assertEquals("PERMUTE:0-3[1, 3, 2, 0, 4]", events.remove(0));
+        model.sort(null);
+        assertTrue(events.isEmpty());
+        model.addAll(1, Arrays.asList("x", "y"));
+        assertEquals(Arrays.asList("a", "x", "y", "b", "c", "d", "e"), new ArrayList<>(model));
+        assertEquals("ADD:1-2", events.remove(0));
+        model.removeAll(Arrays.asList("x", "y", "d", "e"));
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(model));
+        assertEquals(Arrays.asList("DELETE:5-6", "DELETE:1-2"), events);
+        events.clear();
+        model.retainAll(Collections.singleton("b"));
+        assertEquals(Arrays.asList("DELETE:2-2", "DELETE:0-0"), events);
+        assertEquals(Collections.singletonList("b"), new ArrayList<>(model));
+    }
+
+    @Test
+    public void dataProviderTest() {
+        ListModel<Integer> source = new ListModel<>();
+
+        for (int i = 0; i < 1000; i++) {
+            source.add(i);
+        }
+
+        List<String> fetches = new ArrayList<>();
+        ListModelDataProvider<Integer> provider = new ListModelDataProvider<Integer>(source) {
+
+            @Override
+            public List<Integer> fetch(int offset, int limit, Comparator<? super Integer> comparator, boolean ascending,
+                                       Predicate<? super Integer> filter) {
+                fetches.add(offset + ":" + limit);
+                return super.fetch(offset, limit, comparator, ascending, filter);
+            }
+        };
+        DataProviderModel<Integer, Predicate<? super Integer>> model = new DataProviderModel<>(provider);
+        List<ListEventType> events = new ArrayList<>();
+        model.addEventListener((type, startIndex, endIndex) -> events.add(type));
+        model.setBlockSize(50);
+        assertEquals(1000, model.size());
+        assertEquals(Integer.valueOf(120), model.get(120));
+        assertEquals(Integer.valueOf(149), model.get(149));
+        assertEquals(Collections.singletonList("100:50"), fetches);
+        model.sort(Comparator.naturalOrder(), false);
+        assertEquals(Integer.valueOf(999), model.get(0));
+        model.setFilter(value -> value % 2 == 0);
+        assertEquals(500, model.size());
+        assertEquals(Integer.valueOf(998), model.get(0));
+        assertEquals(Arrays.asList(ListEventType.SORT, ListEventType.CHANGE), events);
+        source.add(1000);
+        model.refresh();
+        assertEquals(501, model.size());
+        assertEquals(Integer.valueOf(1000), model.get(0));
+        fetches.clear();
+        assertEquals(1, model.indexOf(998));
+        assertEquals(400, model.indexOf(200));
+        assertFalse(model.contains(1));
+        assertTrue(fetches.isEmpty());
+        ModelAndView<Div, Integer> mv = new ModelAndView<>(new Div());
+        mv.setDataProvider(provider);
+        mv.setModel(null);
+        assertFalse(source.removeEventListener(provider));
+        assertEquals(0, provider.count(value -> value < 0));
+        assertTrue(source.removeEventListener(provider));
+    }
 }
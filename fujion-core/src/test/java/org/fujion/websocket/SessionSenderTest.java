@@ -0,0 +1,253 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.fujion.websocket.WebSocketConfiguration.OverflowPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Tests the overflow policies of asynchronous sending. The first message sent is held in flight
+ * until released, simulating a client that has stopped reading.
+ */
+public class SessionSenderTest {
+    
+    private final WebSocketConfiguration configuration = new WebSocketConfiguration();
+    
+    private boolean savedAsyncSend;
+    
+    private long savedBufferSizeLimit;
+    
+    private long savedTimeLimit;
+    
+    private OverflowPolicy savedPolicy;
+    
+    private final List<WebSocketMessage<?>> sent = Collections.synchronizedList(new ArrayList<>());
+    
+    private final CountDownLatch entered = new CountDownLatch(1);
+    
+    private final CountDownLatch release = new CountDownLatch(1);
+    
+    private volatile boolean closed;
+    
+    private Session session;
+    
+    private SessionSender sender;
+    
+    @Before
+    public void setUp() throws Exception {
+        savedAsyncSend = WebSocketConfiguration.isAsyncSend();
+        savedBufferSizeLimit = WebSocketConfiguration.getSendBufferSizeLimit();
+        savedTimeLimit = WebSocketConfiguration.getSendTimeLimit();
+        savedPolicy = WebSocketConfiguration.getSendOverflowPolicy();
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        WebSocketSession socket = (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { WebSocketSession.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getId":
+                        return "test";
+                    
+                    case "getAttributes":
+                        return attributes;
+                    
+                    case "sendMessage":
+                        entered.countDown();
+                        release.await(10, TimeUnit.SECONDS);
+                        sent.add((WebSocketMessage<?>) args[0]);
+                        return null;
+                    
+                    case "close":
+                        closed = true;
+                        return null;
+                    
+                    case "isOpen":
+                        return !closed;
+                    
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    
+                    case "equals":
+                        return proxy == args[0];
+                    
+                    default:
+                        return null;
+                }
+            });
+        session = new Session(null, socket) {};
+        sender = session.getSender();
+        configure(true, 100, 0, OverflowPolicy.DISCONNECT);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        sender.close();
+        configure(savedAsyncSend, savedBufferSizeLimit, savedTimeLimit, savedPolicy);
+    }
+    
+    private void configure(boolean asyncSend, long bufferSizeLimit, long timeLimit, OverflowPolicy policy) {
+        configuration.setAsyncSend(asyncSend);
+        configuration.setSendBufferSizeLimit(bufferSizeLimit);
+        configuration.setSendTimeLimit(timeLimit);
+        configuration.setSendOverflowPolicy(policy.name());
+    }
+    
+    private void await(BooleanSupplier condition) throws Exception {
+        long timeout = System.currentTimeMillis() + 5000;
+        
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+    }
+    
+    /**
+     * Sends a first message and waits until it is in flight.
+     */
+    private void stall(WebSocketMessage<?> message, int size) throws Exception {
+        sender.send(message, size);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+    }
+    
+    private static TextMessage text(int size) {
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        return new TextMessage(new String(chars));
+    }
+    
+    private static BinaryMessage binary(int size) {
+        return new BinaryMessage(ByteBuffer.allocate(size));
+    }
+    
+    @Test
+    public void testDrop() throws Exception {
+        configure(true, 100, 0, OverflowPolicy.DROP);
+        stall(text(10), 10);
+        sender.send(text(60), 60);
+        sender.send(text(60), 60);
+        assertEquals(1, session.getStatistics().getMessagesDropped());
+        assertEquals(60, sender.getQueuedBytes());
+        release.countDown();
+        await(() -> sent.size() == 2);
+        await(() -> session.getStatistics().getMessagesSent() == 2);
+        assertEquals(0, sender.getQueuedBytes());
+        assertFalse(closed);
+    }
+    
+    @Test
+    public void testDisconnect() throws Exception {
+        configure(true, 100, 0, OverflowPolicy.DISCONNECT);
+        stall(text(10), 10);
+        sender.send(text(60), 60);
+        sender.send(text(60), 60);
+        await(() -> closed);
+        sender.send(text(10), 10);
+        release.countDown();
+        await(() -> sent.size() == 1);
+        Thread.sleep(50);
+        assertEquals(1, sent.size());
+        assertEquals(0, sender.getQueuedBytes());
+    }
+    
+    @Test
+    public void testLargeMessage() throws Exception {
+        configure(true, 100, 0, OverflowPolicy.DISCONNECT);
+        stall(text(500), 500);
+        assertEquals(0, sender.getQueuedBytes());
+        sender.send(text(500), 500);
+        assertEquals(500, sender.getQueuedBytes());
+        release.countDown();
+        await(() -> sent.size() == 2);
+        assertEquals(0, session.getStatistics().getMessagesDropped());
+        assertFalse(closed);
+    }
+    
+    @Test
+    public void testCoalesce() throws Exception {
+        configure(true, 1000, 1, OverflowPolicy.COALESCE);
+        stall(text(10), 10);
+        Thread.sleep(20);
+        sender.send(new TextMessage("{\"a\":1}"), 7);
+        sender.send(new TextMessage("[{\"b\":2},{\"c\":3}]"), 17);
+        assertEquals(1, session.getStatistics().getMessagesCoalesced());
+        release.countDown();
+        await(() -> sent.size() == 2);
+        assertEquals("[{\"a\":1},{\"b\":2},{\"c\":3}]", sent.get(1).getPayload());
+        assertFalse(closed);
+    }
+    
+    @Test
+    public void testCoalesceSizeOverflow() throws Exception {
+        configure(true, 100, 0, OverflowPolicy.COALESCE);
+        stall(text(10), 10);
+        sender.send(text(60), 60);
+        sender.send(text(60), 60);
+        await(() -> closed);
+        assertEquals(0, session.getStatistics().getMessagesCoalesced());
+    }
+    
+    @Test
+    public void testCoalesceBinary() throws Exception {
+        configure(true, 100, 1, OverflowPolicy.COALESCE);
+        stall(binary(10), 10);
+        Thread.sleep(20);
+        sender.send(binary(50), 50);
+        sender.send(binary(40), 40);
+        assertEquals(90, sender.getQueuedBytes());
+        sender.send(binary(20), 20);
+        await(() -> closed);
+        assertEquals(0, session.getStatistics().getMessagesCoalesced());
+        assertEquals(0, sender.getQueuedBytes());
+    }
+    
+    @Test
+    public void testDropBinary() throws Exception {
+        configure(true, 100, 0, OverflowPolicy.DROP);
+        stall(binary(10), 10);
+        sender.send(binary(60), 60);
+        sender.send(binary(60), 60);
+        assertEquals(1, session.getStatistics().getMessagesDropped());
+        assertEquals(60, sender.getQueuedBytes());
+        release.countDown();
+        await(() -> sent.size() == 2);
+    }
+}
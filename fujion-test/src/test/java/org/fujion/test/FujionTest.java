@@ -21,26 +21,66 @@
 package org.fujion.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.fujion.annotation.ComponentDefinition;
+import org.fujion.client.ClientInvocation;
+import org.fujion.client.ClientUtil;
 import org.fujion.client.ExecutionContext;
+import org.fujion.client.Synchronizer;
 import org.fujion.component.BaseComponent;
 import org.fujion.component.Button;
+import org.fujion.component.Div;
 import org.fujion.component.Label;
+import org.fujion.component.Listbox;
+import org.fujion.component.Listitem;
 import org.fujion.component.Page;
 import org.fujion.component.Toolbar;
 import org.fujion.component.Treenode;
 import org.fujion.component.Treeview;
+import org.fujion.event.Event;
+import org.fujion.event.EventUtil;
+import org.fujion.event.IEventListener;
+import org.fujion.model.IComponentRenderer;
+import org.fujion.model.ILazyNestedModel;
+import org.fujion.model.IListModel;
+import org.fujion.model.IModelAndView;
+import org.fujion.model.ListModel;
 import org.fujion.page.PageDefinition;
+import org.fujion.page.PageDefinitionCache;
 import org.fujion.page.PageElement;
+import org.fujion.page.PageParser;
+import org.fujion.page.PagePrecompiler;
+import org.fujion.page.PageRegistry;
 import org.fujion.page.PageUtil;
+import org.fujion.websocket.Session;
+import org.fujion.websocket.SessionStatistics;
+import org.fujion.websocket.WebSocketHandler;
+import org.fujion.websocket.WebSocketSettings;
 import org.junit.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
 public class FujionTest extends MockTest {
 
@@ -107,4 +147,603 @@ public class FujionTest extends MockTest {
 
         assertEquals(nodes.length, index);
     }
+
+    @Test
+    public void testMaterializeTwice() {
+        PageDefinition pagedef = getPageDefinition("treeview.fsp");
+
+        for (int i = 0; i < 2; i++) {
+            Treeview tv = (Treeview) pagedef.materialize(null).get(0);
+            int index = 0;
+
+            for (Treenode node : tv) {
+                assertEquals(nodes[index++], node.getLabel());
+            }
+
+            assertEquals(nodes.length, index);
+        }
+    }
+
+    @Test
+    public void testSessionStatistics() {
+        SessionStatistics stats = ExecutionContext.getSession().getStatistics();
+        long messages = stats.getMessagesSent();
+        long bytes = stats.getBytesSent();
+        WebSocketHandler.send(new ClientInvocation((String) null, "fujion.test", "abc"));
+        assertEquals(messages + 1, stats.getMessagesSent());
+        assertTrue(stats.getBytesSent() > bytes);
+        assertTrue(stats.getLargestMessageSent() > 0);
+    }
+
+    @Test
+    public void testBatching() {
+        SessionStatistics stats = ExecutionContext.getSession().getStatistics();
+        Synchronizer synchronizer = ExecutionContext.getSession().getSynchronizer();
+        long messages = stats.getMessagesSent();
+        synchronizer.startQueueing();
+        synchronizer.startQueueing();
+        ClientUtil.invoke("fujion.test", 1);
+        ClientUtil.invoke("fujion.test", 2);
+        synchronizer.stopQueueing();
+        assertTrue(synchronizer.isQueueing());
+        assertEquals(messages, stats.getMessagesSent());
+        ClientUtil.invoke("fujion.test", 3);
+        synchronizer.stopQueueing();
+        assertEquals(messages + 1, stats.getMessagesSent());
+        assertFalse(synchronizer.isQueueing());
+    }
+
+    @Test
+    public void testRunOnPage() throws Exception {
+        Session session = ExecutionContext.getSession();
+        SessionStatistics stats = session.getStatistics();
+        long messages = stats.getMessagesSent();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Page> page = new AtomicReference<>();
+        session.runOnPage(() -> ClientUtil.invoke("fujion.test", 1));
+        session.runOnPage(() -> {
+            page.set(ExecutionContext.getPage());
+            ClientUtil.invoke("fujion.test", 2);
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertSame(session.getPage(), page.get());
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while (stats.getMessagesSent() == messages && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(stats.getMessagesSent() > messages);
+    }
+
+    @Test
+    public void testRequestExecutor() throws Exception {
+        MockServletContext servletContext = (MockServletContext) ExecutionContext.getServletContext();
+        int threads = WebSocketSettings.setRequestThreads(2);
+        MockSession[] sessions = new MockSession[2];
+
+        try {
+            for (int i = 0; i < sessions.length; i++) {
+                MockSession session = new MockSession(servletContext, new MockWebSocketSession());
+                Map<String, Object> request = new HashMap<>();
+                request.put("pid", session.getPage().getId());
+                request.put("type", "mock");
+                request.put("data", new HashMap<>());
+                Page._init(session.getPage(), new MockClientRequest(session, request), session.getSynchronizer());
+                sessions[i] = session;
+            }
+        } finally {
+            WebSocketSettings.setRequestThreads(threads);
+        }
+
+        int tasksPerSession = 200;
+        List<List<Integer>> order = new ArrayList<>();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(sessions.length * tasksPerSession);
+
+        try {
+            for (int i = 0; i < sessions.length; i++) {
+                order.add(Collections.synchronizedList(new ArrayList<>()));
+            }
+
+            for (int j = 0; j < tasksPerSession; j++) {
+                for (int i = 0; i < sessions.length; i++) {
+                    MockSession session = sessions[i];
+                    List<Integer> sessionOrder = order.get(i);
+                    int seq = j;
+                    session.runOnPage(() -> {
+                        if (ExecutionContext.getSession() != session || ExecutionContext.getPage() != session.getPage()
+                                || !Thread.currentThread().getName().startsWith("fujion-request-")) {
+                            errors.incrementAndGet();
+                        }
+
+                        sessionOrder.add(seq);
+                        latch.countDown();
+                    });
+                }
+            }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, errors.get());
+
+            for (List<Integer> sessionOrder : order) {
+                assertEquals(tasksPerSession, sessionOrder.size());
+
+                for (int j = 0; j < tasksPerSession; j++) {
+                    assertEquals(j, sessionOrder.get(j).intValue());
+                }
+            }
+
+            // Each task runs in its own execution cycle here, so any state left behind on a pool
+            // thread would be visible to the next.
+            for (int j = 0; j < 20; j++) {
+                CountDownLatch done = new CountDownLatch(1);
+                sessions[j % sessions.length].runOnPage(() -> {
+                    if (ExecutionContext.get("fujion_test") != null) {
+                        errors.incrementAndGet();
+                    }
+
+                    ExecutionContext.put("fujion_test", true);
+                    done.countDown();
+                });
+                assertTrue(done.await(5, TimeUnit.SECONDS));
+            }
+
+            assertEquals(0, errors.get());
+        } finally {
+            for (MockSession session : sessions) {
+                session.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void testEventQueueCapacity() throws Exception {
+        int capacity = WebSocketSettings.setEventQueueCapacity(2);
+        Page page;
+
+        try {
+            page = Page._create("capacity.fsp");
+        } finally {
+            WebSocketSettings.setEventQueueCapacity(capacity);
+        }
+
+        PageRegistry.unregisterPage(page);
+        assertEquals(2, page.getEventQueue().getCapacity());
+        assertEquals(capacity, ExecutionContext.getPage().getEventQueue().getCapacity());
+    }
+
+    @Test
+    public void testEventQueueContention() throws Exception {
+        Page page = ExecutionContext.getPage();
+        int producers = 4;
+        int eventsPerProducer = 1000;
+        int[] last = new int[producers];
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        IEventListener listener = event -> {
+            int[] data = (int[]) event.getData();
+
+            if (data[1] != last[data[0]] + 1) {
+                outOfOrder.incrementAndGet();
+            }
+
+            last[data[0]] = data[1];
+            count.incrementAndGet();
+        };
+
+        page.addEventListener("testqueue", listener);
+        Thread[] threads = new Thread[producers];
+
+        for (int i = 0; i < producers; i++) {
+            int producer = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 1; j <= eventsPerProducer; j++) {
+                    EventUtil.post(new Event("testqueue", page, new int[] { producer, j }));
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while (count.get() < producers * eventsPerProducer && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        page.removeEventListener("testqueue", listener);
+        assertEquals(producers * eventsPerProducer, count.get());
+        assertEquals(0, outOfOrder.get());
+        assertTrue(page.getEventQueue().isEmpty());
+    }
+
+    @Test
+    public void testPrecompile() throws Exception {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        PagePrecompiler precompiler = new PagePrecompiler();
+        precompiler.setPatterns("classpath*:*.fsp, classpath*:nonexistent/**/*.fsp");
+        precompiler.setThreads(2);
+        assertEquals(0, precompiler.precompile(resolver));
+        Resource[] resources = resolver.getResources("classpath*:*.fsp");
+        assertTrue(resources.length > 0);
+
+        for (Resource resource : resources) {
+            assertTrue(PageDefinitionCache.getInstance().isCached(resource.getURL().toString()));
+        }
+    }
+
+    @Test
+    public void testStreamingParser() {
+        String fsp = "<fsp xmlns='http://www.fujion.org/schema/fsp' xmlns:x='urn:unknown'>"
+                + "<div name='outer'><?attribute name='color' value='red'?><x:ignored><label/></x:ignored>"
+                + "<label name='lbl' label='abc'/>text<![CDATA[ & more]]><!-- comment --></div></fsp>";
+        PageDefinition pagedef = PageParser.getInstance().parse(IOUtils.toInputStream(fsp, StandardCharsets.UTF_8));
+        PageElement outer = pagedef.getRootElement().getChildren().get(0);
+        assertEquals("red", outer.getAttributes().get("attr:color"));
+        assertEquals(2, outer.getChildren().size());
+        assertEquals("text & more", outer.getChildren().get(1).getAttributes().get(PageParser.CONTENT_ATTR));
+        BaseComponent root = pagedef.materialize(null).get(0);
+        assertEquals("outer", root.getName());
+        assertEquals("red", root.getAttribute("color"));
+        assertEquals("abc", ((Label) root.findByName("lbl")).getLabel());
+    }
+
+    @Test
+    public void testDiskCache() throws Exception {
+        PageDefinitionCache cache = PageDefinitionCache.getInstance();
+        File dir = Files.createTempDirectory("fspc").toFile();
+        String url = "file://" + ExecutionContext.getSession().getServletContext().getRealPath("treeview.fsp");
+        String version = cache.getDiskCacheVersion();
+        boolean versioned = PageDefinitionCache.class.getPackage().getImplementationVersion() != null;
+
+        try {
+            cache.setDiskCacheVersion(null);
+            cache.setDiskCacheDirectory(dir.getPath());
+            assertEquals(versioned, cache.getDiskCacheDirectory() != null);
+            cache.setDiskCacheVersion("test");
+            cache.setDiskCacheDirectory(dir.getPath());
+            cache.remove(url);
+            PageDefinition parsed = cache.get(url);
+            assertEquals(1, dir.listFiles().length);
+            cache.remove(url);
+            PageDefinition loaded = cache.get(url);
+            assertNotSame(parsed, loaded);
+            assertEquals(parsed.getSource(), loaded.getSource());
+            Treeview tv = (Treeview) loaded.materialize(null).get(0);
+            int index = 0;
+
+            for (Treenode node : tv) {
+                assertEquals(nodes[index++], node.getLabel());
+            }
+
+            assertEquals(nodes.length, index);
+        } finally {
+            cache.setDiskCacheDirectory(null);
+            cache.setDiskCacheVersion(version);
+            cache.remove(url);
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    @Test
+    public void testDiskCacheImport() throws Exception {
+        PageDefinitionCache cache = PageDefinitionCache.getInstance();
+        File dir = Files.createTempDirectory("fspc").toFile();
+        File src = Files.createTempDirectory("fsps").toFile();
+        File page = new File(src, "page.fsp");
+        File imported = new File(src, "imported.fsp");
+        String url = "file://" + page.getPath();
+        FileUtils.writeStringToFile(page, "<fsp><?import src=\"file://" + imported.getPath() + "\"?></fsp>", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(imported, "<fsp><label label=\"before\"/></fsp>", StandardCharsets.UTF_8);
+        String version = cache.getDiskCacheVersion();
+
+        try {
+            cache.setDiskCacheVersion("test");
+            cache.setDiskCacheDirectory(dir.getPath());
+            cache.remove(url);
+            cache.get(url);
+            cache.remove(url);
+            assertEquals("before", ((Label) cache.get(url).materialize(null).get(0)).getLabel());
+            FileUtils.writeStringToFile(imported, "<fsp><label label=\"after\"/></fsp>", StandardCharsets.UTF_8);
+            cache.remove(url);
+            assertEquals("after", ((Label) cache.get(url).materialize(null).get(0)).getLabel());
+        } finally {
+            cache.setDiskCacheDirectory(null);
+            cache.setDiskCacheVersion(version);
+            cache.remove(url);
+            FileUtils.deleteQuietly(dir);
+            FileUtils.deleteQuietly(src);
+        }
+    }
+
+    @Test
+    public void testRevalidateImport() throws Exception {
+        PageDefinitionCache cache = PageDefinitionCache.getInstance();
+        File src = Files.createTempDirectory("fsps").toFile();
+        File page = new File(src, "page.fsp");
+        File imported = new File(src, "imported.fsp");
+        String url = "file://" + page.getPath();
+        FileUtils.writeStringToFile(page, "<fsp><?import src=\"file://" + imported.getPath() + "\"?></fsp>", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(imported, "<fsp><label label=\"before\"/></fsp>", StandardCharsets.UTF_8);
+        boolean revalidate = cache.isRevalidate();
+        long revalidateInterval = cache.getRevalidateInterval();
+
+        try {
+            cache.setRevalidate(true);
+            cache.setRevalidateInterval(0);
+            cache.remove(url);
+            assertEquals("before", ((Label) cache.get(url).materialize(null).get(0)).getLabel());
+            FileUtils.writeStringToFile(imported, "<fsp><label label=\"after\"/></fsp>", StandardCharsets.UTF_8);
+            imported.setLastModified(imported.lastModified() + 10000);
+            assertEquals("after", ((Label) cache.get(url).materialize(null).get(0)).getLabel());
+        } finally {
+            cache.setRevalidate(revalidate);
+            cache.setRevalidateInterval(revalidateInterval);
+            cache.remove(url);
+            FileUtils.deleteQuietly(src);
+        }
+    }
+
+    @Test
+    public void testChildIndex() {
+        Div parent = new Div();
+        List<BaseComponent> expected = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            Div child = new Div();
+            parent.addChild(child);
+            expected.add(child);
+        }
+
+        assertChildIndexes(parent, expected);
+
+        for (int i = 0; i < 1000; i++) {
+            Div child = new Div();
+            int index = (i * 7919) % expected.size();
+            parent.addChild(child, index);
+            expected.add(index, child);
+            BaseComponent removed = expected.remove((i * 104729) % expected.size());
+            parent.removeChild(removed);
+            assertEquals(-1, removed.getIndex());
+        }
+
+        assertChildIndexes(parent, expected);
+        parent.swapChildren(0, 9999);
+        Collections.swap(expected, 0, 9999);
+        BaseComponent moved = expected.remove(5000);
+        expected.add(10, moved);
+        moved.setIndex(10);
+        parent.addChild(new Div(), expected.get(20));
+        expected.add(20, parent.getChildAt(20));
+        assertChildIndexes(parent, expected);
+        assertSame(expected.get(11), moved.getNextSibling());
+        assertSame(expected.get(9), moved.getPreviousSibling());
+        parent.destroyChildren();
+        assertEquals(0, parent.getChildCount());
+    }
+
+    private void assertChildIndexes(BaseComponent parent, List<BaseComponent> expected) {
+        assertEquals(expected.size(), parent.getChildCount());
+
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            BaseComponent child = expected.get(i);
+            assertSame(child, parent.getChildAt(i));
+            assertEquals(i, child.getIndex());
+        }
+    }
+
+    @Test
+    public void testComponentRegistry() {
+        Page page = ExecutionContext.getPage();
+        List<BaseComponent> registered = new ArrayList<>();
+        IEventListener listener = event -> registered.add(event.getRelatedTarget());
+        Div div = new Div();
+        div.setParent(page);
+        String id = div.getId();
+        assertSame(div, page.findById(id));
+        assertSame(div, page.findById(id + "-inner"));
+        Div child = new Div();
+        child.setParent(div);
+        div.detach();
+        assertNull(page.findById(id));
+        assertNull(page.findById(child.getId()));
+        div.setParent(page);
+        assertSame(div, page.findById(id));
+        assertSame(child, page.findById(child.getId()));
+        child.setParent(page);
+        assertSame(child, page.findById(child.getId()));
+        child.destroy();
+        page.addEventListener("unregister", listener);
+
+        try {
+            div.destroy();
+        } finally {
+            page.removeEventListener("unregister", listener);
+        }
+
+        assertNull(page.findById(id));
+        assertEquals(1, registered.size());
+        assertSame(div, registered.get(0));
+    }
+
+    @Test
+    public void testVirtualRendering() {
+        Listbox listbox = new Listbox();
+        ListModel<String> model = new ListModel<>();
+
+        for (int i = 0; i < 20000; i++) {
+            model.add("item" + i);
+        }
+
+        @SuppressWarnings("unchecked")
+        IModelAndView<Listitem, String> mv = (IModelAndView<Listitem, String>) listbox.getModelAndView();
+        mv.setOverscan(5);
+        mv.setViewport(0, 10);
+        listbox.setVirtual(true);
+        mv.setRenderer(item -> new Listitem(item));
+        mv.setModel(model);
+        assertVirtualWindow(listbox, model, 0, 15);
+        Listitem retained = (Listitem) listbox.getChildAt(10);
+        mv.setViewport(8, 10);
+        assertVirtualWindow(listbox, model, 3, 20);
+        assertSame(retained, listbox.getChildAt(7));
+        mv.setViewport(10000, 10);
+        assertVirtualWindow(listbox, model, 9995, 20);
+        model.add(0, "first");
+        assertVirtualWindow(listbox, model, 9995, 20);
+        model.removeRange(10, 9999);
+        assertVirtualWindow(listbox, model, 9995, 20);
+        model.add(9998, "inserted");
+        model.remove(10010);
+        model.swap(9996, 10005);
+        model.swap(9997, 10);
+        model.set(9999, "replaced");
+        assertVirtualWindow(listbox, model, 9995, 20);
+        listbox.setVirtual(false);
+        assertEquals(model.size(), listbox.getChildCount());
+        listbox.destroy();
+    }
+
+    @Test
+    public void testVirtualSelection() {
+        Listbox listbox = new Listbox();
+        ListModel<String> model = new ListModel<>();
+
+        for (int i = 0; i < 1000; i++) {
+            model.add("item" + i);
+        }
+
+        @SuppressWarnings("unchecked")
+        IModelAndView<Listitem, String> mv = (IModelAndView<Listitem, String>) listbox.getModelAndView();
+        mv.setOverscan(5);
+        mv.setViewport(0, 10);
+        listbox.setVirtual(true);
+        mv.setRenderer(item -> new Listitem(item));
+        mv.setModel(model);
+        listbox.setSelectedIndex(3);
+        assertTrue(((Listitem) listbox.getChildAt(3)).isSelected());
+        mv.setViewport(500, 10);
+        assertEquals(3, listbox.getSelectedIndex());
+        assertEquals(1, listbox.getSelectedCount());
+        assertNull(listbox.getSelectedItem());
+        model.add(0, "first");
+        model.remove(1);
+        model.add(1, "second");
+        assertEquals(4, listbox.getSelectedIndex());
+        mv.setViewport(0, 10);
+        Listitem item = listbox.getSelectedItem();
+        assertEquals("item3", item.getLabel());
+        assertSame(item, listbox.getChildAt(4));
+        listbox.setSelectedIndex(900);
+        assertFalse(item.isSelected());
+        assertEquals(900, listbox.getSelectedIndex());
+        model.removeRange(800, 950);
+        assertEquals(-1, listbox.getSelectedIndex());
+        assertEquals(0, listbox.getSelectedCount());
+        listbox.destroy();
+    }
+
+    @Test
+    public void testModelPatching() {
+        Listbox listbox = new Listbox();
+        ListModel<String> model = new ListModel<>();
+
+        for (int i = 0; i < 2000; i++) {
+            model.add(String.format("item%04d", i));
+        }
+
+        @SuppressWarnings("unchecked")
+        IModelAndView<Listitem, String> mv = (IModelAndView<Listitem, String>) listbox.getModelAndView();
+        mv.setRenderer(new IComponentRenderer<Listitem, String>() {
+
+            @Override
+            public Listitem render(String model) {
+                return new Listitem(model);
+            }
+
+            @Override
+            public boolean update(Listitem component, String model) {
+                component.setLabel(model);
+                return true;
+            }
+        });
+        mv.setModel(model);
+        Listitem first = (Listitem) listbox.getChildAt(0);
+        model.sort(null, false);
+        assertVirtualWindow(listbox, model, 0, 2000);
+        assertSame(first, listbox.getChildAt(1999));
+        model.set(1999, "replaced");
+        assertSame(first, listbox.getChildAt(1999));
+        assertEquals("replaced", first.getLabel());
+        listbox.destroy();
+    }
+
+    private static class LazyTreeModel extends ListModel<String> implements ILazyNestedModel<String> {
+
+        private final List<String> fetched;
+
+        LazyTreeModel(List<String> fetched, String... nodes) {
+            super(Arrays.asList(nodes));
+            this.fetched = fetched;
+        }
+
+        @Override
+        public boolean hasChildren(String parent) {
+            return parent.length() < 3;
+        }
+
+        @Override
+        public IListModel<String> getChildren(String parent) {
+            fetched.add(parent);
+            return new LazyTreeModel(fetched, parent + "a", parent + "b");
+        }
+    }
+
+    @Test
+    public void testLazyTree() {
+        List<String> fetched = new ArrayList<>();
+        Treeview tree = new Treeview();
+        IModelAndView<Treenode, String> mv = tree.getModelAndView(String.class);
+        mv.setReleaseOnCollapse(true);
+        mv.setRenderer(label -> {
+            Treenode node = new Treenode();
+            node.setLabel(label);
+            node.setCollapsed(true);
+            return node;
+        });
+        mv.setModel(new LazyTreeModel(fetched, "a", "b"));
+        Treenode node = (Treenode) tree.getFirstChild();
+        assertEquals(2, tree.getChildCount());
+        assertTrue(fetched.isEmpty());
+        assertTrue(node.isExpandable());
+        assertEquals(0, node.getChildCount());
+        node.setCollapsed(false);
+        assertEquals(Collections.singletonList("a"), fetched);
+        assertEquals(2, node.getChildCount());
+        Treenode leaf = (Treenode) node.getFirstChild();
+        leaf.setCollapsed(false);
+        leaf = (Treenode) leaf.getFirstChild();
+        assertFalse(leaf.isExpandable());
+        node.setCollapsed(true);
+        assertEquals(0, node.getChildCount());
+        assertTrue(node.isExpandable());
+        node.setCollapsed(false);
+        assertEquals(2, node.getChildCount());
+        assertEquals(3, fetched.size());
+        tree.destroy();
+    }
+
+    private void assertVirtualWindow(Listbox listbox, ListModel<String> model, int start, int count) {
+        int expected = Math.max(0, Math.min(count, model.size() - start));
+        assertEquals(expected, listbox.getChildCount());
+
+        for (int i = 0; i < expected; i++) {
+            assertEquals(model.get(start + i), ((Listitem) listbox.getChildAt(i)).getLabel());
+        }
+    }
 }
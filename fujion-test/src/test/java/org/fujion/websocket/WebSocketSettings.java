@@ -0,0 +1,58 @@
+/*
+ * #%L
+ * fujion
+ * %%
+ * Copyright (C) 2008 - 2017 Regenstrief Institute, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * #L%
+ */
+package org.fujion.websocket;
+
+/**
+ * Changes web socket settings for tests through the package-private setters of
+ * {@link WebSocketConfiguration}. Each method returns the previous value, so that it may be
+ * restored.
+ */
+public class WebSocketSettings {
+    
+    private static final WebSocketConfiguration config = new WebSocketConfiguration();
+    
+    /**
+     * Sets the number of pool threads used to process client requests.
+     *
+     * @param value The number of request threads.
+     * @return The previous number of request threads.
+     */
+    public static int setRequestThreads(int value) {
+        int previous = WebSocketConfiguration.getRequestThreads();
+        config.setRequestThreads(value);
+        return previous;
+    }
+    
+    /**
+     * Sets the maximum number of events that may be posted to a page's event queue.
+     *
+     * @param value The event queue capacity.
+     * @return The previous event queue capacity.
+     */
+    public static int setEventQueueCapacity(int value) {
+        int previous = WebSocketConfiguration.getEventQueueCapacity();
+        config.setEventQueueCapacity(value);
+        return previous;
+    }
+    
+    private WebSocketSettings() {
+    }
+}